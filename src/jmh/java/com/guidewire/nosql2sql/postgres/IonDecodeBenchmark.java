@@ -0,0 +1,83 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.amazon.ion.system.IonReaderBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes an Ion export data file into item attributes, as the S3 import does for every exported item, both from the
+ * inflated file and from the compressed file as it is read from S3.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IonDecodeBenchmark {
+
+  private static final int ITEMS = 1000;
+
+  @Param({"DIRECT", "JSON_TEXT"})
+  private IonDecoder decoder;
+  @Param({"false", "true"})
+  private boolean binary;
+  @Param({"10", "50"})
+  private int width;
+  @Param({"0", "3"})
+  private int depth;
+
+  private byte[] export;
+  private byte[] compressedExport;
+  private IonItemDecoder itemDecoder;
+
+  @Setup
+  public void setUp() {
+    export = new SyntheticItems(width, depth).ionExport(ITEMS, binary);
+    compressedExport = gzip(export);
+    itemDecoder = new IonItemDecoder(decoder, new ObjectMapper());
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    var out = new ByteArrayOutputStream();
+    try (var zip = new GZIPOutputStream(out)) {
+      zip.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ITEMS)
+  public void decodeItems(Blackhole blackhole) throws IOException {
+    try (var reader = IonReaderBuilder.standard().build(export)) {
+      while (reader.next() != null) {
+        blackhole.consume(itemDecoder.readItem(reader));
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ITEMS)
+  public void inflateAndDecodeItems(Blackhole blackhole) throws IOException {
+    try (var reader = IonReaderBuilder.standard().build(new GZIPInputStream(new ByteArrayInputStream(compressedExport)))) {
+      while (reader.next() != null) {
+        blackhole.consume(itemDecoder.readItem(reader));
+      }
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Maps items to tables and extracts their column values, the per item work of every write path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MappingBenchmark {
+
+  @Param({"10", "50", "200"})
+  private int width;
+  @Param({"0", "3"})
+  private int depth;
+
+  private final TableMapperManager tableMapperManager = new TableMapperManager();
+  private Map<String, ItemAttribute> item;
+  private Map<String, ItemAttribute> itemWithNewAttribute;
+  private TableMapping mapping;
+
+  @Setup
+  public void setUp() {
+    item = new SyntheticItems(width, depth).item(0);
+    itemWithNewAttribute = new LinkedHashMap<>(item);
+    itemWithNewAttribute.put("added", new ItemAttribute(ColumnDataType.STRING, "value"));
+    mapping = tableMapperManager.map(item, SyntheticItems.TABLE_NAME);
+  }
+
+  @Benchmark
+  public TableMapping mapNewTable() {
+    return tableMapperManager.map(item, SyntheticItems.TABLE_NAME);
+  }
+
+  /**
+   * The check every item of an already mapped table goes through.
+   */
+  @Benchmark
+  public boolean checkMapped() {
+    return tableMapperManager.isMapped(mapping, item);
+  }
+
+  @Benchmark
+  public TableMapping extendWithNewColumn() {
+    return tableMapperManager.extend(mapping, itemWithNewAttribute);
+  }
+
+  @Benchmark
+  public Map<String, Object> extractColumns() {
+    return PostgresManager.extractColumns(mapping, item);
+  }
+}
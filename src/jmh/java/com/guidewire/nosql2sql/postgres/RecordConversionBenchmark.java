@@ -0,0 +1,39 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.amazonaws.services.dynamodbv2.model.Record;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Converts a stream record received on /api/syncData into item attributes, as applyAwsRecord does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RecordConversionBenchmark {
+
+  @Param({"10", "50"})
+  private int width;
+  @Param({"0", "3"})
+  private int depth;
+
+  private Record rec;
+
+  @Setup
+  public void setUp() {
+    rec = new SyntheticItems(width, depth).record(0);
+  }
+
+  @Benchmark
+  public Map<String, ItemAttribute> convertRecord() {
+    return PostgresManager.recordItem(rec);
+  }
+}
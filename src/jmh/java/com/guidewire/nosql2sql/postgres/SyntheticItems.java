@@ -0,0 +1,149 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.amazon.ion.system.IonBinaryWriterBuilder;
+import com.amazon.ion.system.IonReaderBuilder;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.OperationType;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.StreamRecord;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates deterministic synthetic DynamoDB items for the benchmarks. Besides the key and discriminator attributes,
+ * each item has {@code width} attributes cycling through strings, numbers, booleans and nested maps, and nested maps
+ * are {@code depth} levels deep.
+ */
+public class SyntheticItems {
+
+  public static final String TABLE_NAME = "bench";
+
+  private static final int NESTED_FIELDS = 3;
+  private static final JsonNodeFactory NODES = JsonNodeFactory.withExactBigDecimals(true);
+
+  private final int width;
+  private final int depth;
+  private final Random random = new Random(42);
+
+  /**
+   * @param width The number of attributes of each item, on top of its key and discriminator.
+   * @param depth The nesting depth of map attributes, 0 for flat items.
+   */
+  public SyntheticItems(int width, int depth) {
+    this.width = width;
+    this.depth = depth;
+  }
+
+  /**
+   * @param index The index of the item, which makes its key unique.
+   * @return The item as the JSON document of its attributes.
+   */
+  public ObjectNode json(int index) {
+    var item = NODES.objectNode();
+    item.put("pk", "pk-" + index);
+    item.put("sk", "sk-" + index);
+    item.put("recordType", TABLE_NAME);
+    for (int a = 0; a < width; a++) {
+      var name = "attr" + a;
+      switch (a % 4) {
+        case 0 -> item.put(name, text());
+        case 1 -> item.put(name, BigDecimal.valueOf(random.nextInt(1_000_000), 2));
+        case 2 -> item.put(name, random.nextBoolean());
+        default -> item.set(name, depth > 0 ? nested(depth) : NODES.textNode(text()));
+      }
+    }
+    return item;
+  }
+
+  /**
+   * @param index The index of the item.
+   * @return The decoded attributes of the item.
+   */
+  public Map<String, ItemAttribute> item(int index) {
+    return ItemAttribute.itemFromJson(json(index));
+  }
+
+  /**
+   * @param index The index of the item.
+   * @return A stream record inserting the item.
+   */
+  public Record record(int index) {
+    var image = attributeValues(json(index));
+    return new Record()
+        .withEventName(OperationType.INSERT)
+        .withDynamodb(new StreamRecord()
+            .withKeys(Map.of("pk", image.get("pk"), "sk", image.get("sk")))
+            .withNewImage(image));
+  }
+
+  /**
+   * Encodes items the way a DynamoDB Ion export data file holds them, before compression.
+   * @param count The number of items.
+   * @param binary True for binary Ion, false for text Ion.
+   * @return The content of the data file.
+   */
+  public byte[] ionExport(int count, boolean binary) {
+    var text = new StringBuilder("$ion_1_0 ");
+    for (int i = 0; i < count; i++) {
+      // JSON is valid Ion text
+      text.append("{Item:").append(json(i)).append("}\n");
+    }
+    var bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+    if (!binary) {
+      return bytes;
+    }
+    var out = new ByteArrayOutputStream();
+    try (var reader = IonReaderBuilder.standard().build(bytes);
+        var writer = IonBinaryWriterBuilder.standard().build(out)) {
+      writer.writeValues(reader);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private JsonNode nested(int level) {
+    var node = NODES.objectNode();
+    for (int f = 0; f < NESTED_FIELDS; f++) {
+      if (level > 1 && f == 0) {
+        node.set("child", nested(level - 1));
+      } else {
+        node.set("field" + f, f % 2 == 0 ? NODES.textNode(text()) : NODES.numberNode(random.nextInt(1000)));
+      }
+    }
+    return node;
+  }
+
+  private String text() {
+    var chars = new char[32];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(26));
+    }
+    return new String(chars);
+  }
+
+  private static Map<String, AttributeValue> attributeValues(JsonNode json) {
+    var values = new LinkedHashMap<String, AttributeValue>();
+    json.fields().forEachRemaining(field -> values.put(field.getKey(), attributeValue(field.getValue())));
+    return values;
+  }
+
+  private static AttributeValue attributeValue(JsonNode value) {
+    return switch (value.getNodeType()) {
+      case STRING -> new AttributeValue().withS(value.textValue());
+      case NUMBER -> new AttributeValue().withN(value.asText());
+      case BOOLEAN -> new AttributeValue().withBOOL(value.booleanValue());
+      case OBJECT -> new AttributeValue().withM(attributeValues(value));
+      default -> throw new IllegalArgumentException("Unsupported type " + value.getNodeType());
+    };
+  }
+}
@@ -1,10 +1,13 @@
 package com.guidewire.nosql2sql;
 
 import com.guidewire.nosql2sql.dynamo.DynamoSyncingManager;
+import com.guidewire.nosql2sql.dynamo.ImportOptions;
+import com.guidewire.nosql2sql.postgres.LoadMode;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.time.StopWatch;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
 
 @Slf4j
 @ShellComponent
@@ -17,12 +20,23 @@ public class CliCommands {
   }
 
   @ShellMethod(value = "Import table", key = "import")
-  public String importTable() {
+  public String importTable(
+      @ShellOption(defaultValue = ShellOption.NULL, help = "INSERT, BATCH, COPY_TEXT or COPY_BINARY") LoadMode loadMode,
+      @ShellOption(defaultValue = ShellOption.NULL, help = "number of export data files imported in parallel") Integer workers,
+      @ShellOption(defaultValue = ShellOption.NULL, help = "sample the export to create every table up front") Boolean inferSchema,
+      @ShellOption(defaultValue = ShellOption.NULL, help = "load into staging tables and swap them in when done") Boolean staged,
+      @ShellOption(defaultValue = ShellOption.NULL, help = "skip the work committed by an interrupted import") Boolean resume) {
     log.info("starting import to postgres");
 
     try {
       var sw = StopWatch.createStarted();
-      dynamoSyncingManager.importFromS3();
+      dynamoSyncingManager.importFromS3(ImportOptions.builder()
+          .loadMode(loadMode)
+          .workers(workers)
+          .inferSchema(inferSchema)
+          .staged(staged)
+          .resume(resume)
+          .build());
       sw.stop();
 
       return "import completed in " + sw.formatTime();
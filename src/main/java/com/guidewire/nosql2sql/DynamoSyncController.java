@@ -3,14 +3,25 @@ package com.guidewire.nosql2sql;
 import com.amazonaws.services.dynamodbv2.model.Record;
 import com.guidewire.nosql2sql.dynamo.DynamoExportJob;
 import com.guidewire.nosql2sql.dynamo.DynamoSyncingManager;
+import com.guidewire.nosql2sql.dynamo.ImportInProgressException;
+import com.guidewire.nosql2sql.dynamo.ImportJob;
+import com.guidewire.nosql2sql.dynamo.ImportOptions;
+import com.guidewire.nosql2sql.dynamo.SyncQueueFullException;
+import com.guidewire.nosql2sql.postgres.LoadMode;
+import java.net.URI;
 import java.util.List;
 import java.util.concurrent.Future;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.time.StopWatch;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -24,8 +35,18 @@ public class DynamoSyncController {
   private Future<?> exporter;
 
   @PostMapping("/api/syncData")
-  public void acceptData(@RequestBody List<Record> data) {
-    dynamoSyncingManager.startEnqueuing(data);
+  public ResponseEntity<?> acceptData(@RequestBody List<Record> data) {
+    try {
+      dynamoSyncingManager.startEnqueuing(data);
+    } catch (SyncQueueFullException e) {
+      log.warn(e.getMessage());
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+          .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+          .body(e.getMessage());
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+    }
+    return ResponseEntity.accepted().build();
   }
 
   @PostMapping("/api/exportTable")
@@ -37,16 +58,68 @@ public class DynamoSyncController {
     return ResponseEntity.ok().build();
   }
 
+  @PostMapping("/api/refresh")
+  public ResponseEntity<?> refreshTable(@RequestParam(required = false) LoadMode loadMode, @RequestParam(required = false) Integer workers) {
+    log.info("starting incremental refresh");
+    try {
+      dynamoSyncingManager.startRefresh(ImportOptions.builder()
+              .loadMode(loadMode)
+              .workers(workers)
+              .build())
+          .whenComplete((changes, e) -> {
+            if (e != null) {
+              log.error("incremental refresh failed", e);
+            } else {
+              log.info("incremental refresh applied {} changes", changes);
+            }
+          });
+    } catch (ImportInProgressException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+    return ResponseEntity.accepted().build();
+  }
+
   @PostMapping("/api/import")
-  public ResponseEntity<?> importTable() {
+  public ResponseEntity<?> importTable(@RequestParam(required = false) LoadMode loadMode, @RequestParam(required = false) Integer workers,
+      @RequestParam(required = false) Boolean inferSchema, @RequestParam(required = false) Boolean staged,
+      @RequestParam(required = false) Boolean resume) {
     log.info("starting import to postgres");
 
-    var sw = StopWatch.createStarted();
-    dynamoSyncingManager.importFromS3();
+    ImportJob job;
+    try {
+      job = dynamoSyncingManager.startImport(ImportOptions.builder()
+          .loadMode(loadMode)
+          .workers(workers)
+          .inferSchema(inferSchema)
+          .staged(staged)
+          .resume(resume)
+          .build());
+    } catch (ImportInProgressException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+    return ResponseEntity.accepted()
+        .location(URI.create("/api/import/" + job.getId()))
+        .body(job.status());
+  }
 
-    sw.stop();
-    log.info("import completed in {}", sw.formatTime());
-    return ResponseEntity.ok().build();
+  @GetMapping("/api/import/{id}")
+  public ResponseEntity<?> importStatus(@PathVariable String id) {
+    return dynamoSyncingManager.getImport(id)
+        .<ResponseEntity<?>>map(job -> ResponseEntity.ok(job.status()))
+        .orElse(ResponseEntity.notFound().build());
+  }
+
+  @DeleteMapping("/api/import/{id}")
+  public ResponseEntity<?> cancelImport(@PathVariable String id) {
+    var job = dynamoSyncingManager.getImport(id).orElse(null);
+    if (job == null) {
+      return ResponseEntity.notFound().build();
+    }
+    if (!job.cancel()) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(job.status());
+    }
+    log.info("cancelling import {}", id);
+    return ResponseEntity.accepted().body(job.status());
   }
 
 }
@@ -1,5 +1,6 @@
 package com.guidewire.nosql2sql.dynamo;
 
+import com.guidewire.nosql2sql.postgres.ExportState;
 import com.guidewire.nosql2sql.postgres.MappingConfiguration;
 import jakarta.annotation.PostConstruct;
 import java.time.Instant;
@@ -14,9 +15,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.DescribeExportRequest;
-import software.amazon.awssdk.services.dynamodb.model.ExportFormat;
+import software.amazon.awssdk.services.dynamodb.model.ExportDescription;
 import software.amazon.awssdk.services.dynamodb.model.ExportStatus;
 import software.amazon.awssdk.services.dynamodb.model.ExportTableToPointInTimeRequest;
+import software.amazon.awssdk.services.dynamodb.model.ExportType;
+import software.amazon.awssdk.services.dynamodb.model.ExportViewType;
+import software.amazon.awssdk.services.dynamodb.model.IncrementalExportSpecification;
 
 @Component
 @Slf4j
@@ -25,8 +29,15 @@ import software.amazon.awssdk.services.dynamodb.model.ExportTableToPointInTimeRe
 @Setter
 public class DynamoExportJob {
 
+  /**
+   * Prefix of incremental exports, kept apart from the prefix of full exports so that they are never mistaken for
+   * the latest full export of the table
+   */
+  static final String INCREMENTAL_PREFIX = "incremental/";
+
   private final MappingConfiguration mappingConfiguration;
   private final DynamoDbClient dynamoDbClient;
+  private final ExportState exportState;
   private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor();
   private String s3ExportArn;
   private Instant exportTime;
@@ -50,31 +61,73 @@ public class DynamoExportJob {
   private void exportToS3(String tableName) throws InterruptedException {
 
     var tableArn = dynamoDbClient.describeTable(b -> b.tableName(tableName)).table().tableArn();
+    var pointInTime = Instant.now();
 
     var exportRequest = ExportTableToPointInTimeRequest.builder()
         .tableArn(tableArn)
         .s3Bucket(mappingConfiguration.getS3().getBucketName())
         .s3Prefix(tableName)
-        .exportFormat(ExportFormat.ION)
-        .exportTime(Instant.now())
+        .exportFormat(mappingConfiguration.getDynamodb().getExportFormat())
+        .exportTime(pointInTime)
         .build();
 
     log.info("Beginning export...");
-    var response = dynamoDbClient.exportTableToPointInTime(exportRequest);
-    s3ExportArn = response.exportDescription().exportArn();
+    var export = runExport(exportRequest);
+
+    if (export.exportStatus() == ExportStatus.FAILED) {
+      log.info("Export failed: {}", export.failureMessage());
+    } else {
+      log.info("Export completed!");
+      // incremental exports continue from the point in time of the full export
+      exportState.record(tableName, pointInTime);
+    }
+  }
+
+  /**
+   * Exports the changes made to a table within a time window, and waits for the export to complete. The export holds
+   * the new and old image of every changed item, so removed items can still be routed to their table.
+   * @param tableName The name of the DynamoDB table.
+   * @param from The start of the window, inclusive.
+   * @param to The end of the window, exclusive. The window must span between 15 minutes and 24 hours.
+   * @return The prefix the export was written to in the export bucket.
+   * @throws InterruptedException if interrupted while waiting for the export.
+   */
+  public String exportIncrement(String tableName, Instant from, Instant to) throws InterruptedException {
+    var tableArn = dynamoDbClient.describeTable(b -> b.tableName(tableName)).table().tableArn();
+    var prefix = mappingConfiguration.getS3().getPrefix().orElse("") + INCREMENTAL_PREFIX + tableName + "/" + to.getEpochSecond();
+
+    var exportRequest = ExportTableToPointInTimeRequest.builder()
+        .tableArn(tableArn)
+        .s3Bucket(mappingConfiguration.getS3().getBucketName())
+        .s3Prefix(prefix)
+        .exportFormat(mappingConfiguration.getDynamodb().getExportFormat())
+        .exportType(ExportType.INCREMENTAL_EXPORT)
+        .incrementalExportSpecification(IncrementalExportSpecification.builder()
+            .exportFromTime(from)
+            .exportToTime(to)
+            .exportViewType(ExportViewType.NEW_AND_OLD_IMAGES)
+            .build())
+        .build();
+
+    log.info("Beginning incremental export of {} from {} to {}", tableName, from, to);
+    var export = runExport(exportRequest);
+    if (export.exportStatus() == ExportStatus.FAILED) {
+      throw new IllegalStateException("Incremental export of " + tableName + " failed: " + export.failureMessage());
+    }
+    log.info("Incremental export of {} completed with {} items", tableName, export.itemCount());
+    return prefix;
+  }
+
+  private ExportDescription runExport(ExportTableToPointInTimeRequest exportRequest) throws InterruptedException {
+    var export = dynamoDbClient.exportTableToPointInTime(exportRequest).exportDescription();
+    s3ExportArn = export.exportArn();
     log.info("Export arn: {}", s3ExportArn);
 
-    ExportStatus exportStatus = response.exportDescription().exportStatus();
-    while (exportStatus == ExportStatus.IN_PROGRESS) {
+    while (export.exportStatus() == ExportStatus.IN_PROGRESS) {
       log.info("Waiting for export to finish...");
-      exportStatus = dynamoDbClient.describeExport(DescribeExportRequest.builder().exportArn(s3ExportArn).build()).exportDescription().exportStatus();
       TimeUnit.SECONDS.sleep(5);
+      export = dynamoDbClient.describeExport(DescribeExportRequest.builder().exportArn(s3ExportArn).build()).exportDescription();
     }
-
-    if (exportStatus == ExportStatus.FAILED) {
-      log.info("Export failed: {}", response.exportDescription().failureMessage());
-    } else {
-      log.info("Export completed!");
-    }
+    return export;
   }
 }
@@ -2,12 +2,9 @@ package com.guidewire.nosql2sql.dynamo;
 
 import com.amazonaws.services.dynamodbv2.model.Record;
 import com.guidewire.nosql2sql.postgres.MappingConfiguration;
-import com.guidewire.nosql2sql.postgres.PostgresManager;
-import com.guidewire.nosql2sql.postgres.PostgresManager.ApplyType;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -17,26 +14,55 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class DynamoSyncingManager {
 
-  private final PostgresManager postgresManager;
-  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final ImportJobs importJobs;
+  private final StreamApplier streamApplier;
   private final MappingConfiguration mappingConfiguration;
 
+  /**
+   * Queues stream records to be applied to PostgreSQL.
+   * @param data The records, in stream order.
+   * @throws SyncQueueFullException if too many records are already waiting to be applied.
+   */
   public void startEnqueuing(List<Record> data) {
-
-    CompletableFuture.runAsync(() -> data.forEach(postgresManager::applyAwsRecord), executor)
-        .handleAsync((result, err) -> {
-          if (err != null) {
-            log.error("Err", err);
-          }
-          return result;
-        });
+    streamApplier.enqueue(data);
   }
 
   public void importFromS3() {
-    // open s3 stream
-    var stream = postgresManager.loadFromS3(mappingConfiguration.getS3().getBucketName(), mappingConfiguration.getS3().getPrefix().orElse("") + mappingConfiguration.getDynamoTableName() + "/");
-    // import rows
-    log.debug("importing to postgres");
-    stream.forEach(node -> postgresManager.applyToPostgres(node, ApplyType.INSERT));
+    importFromS3(ImportOptions.builder().build());
+  }
+
+  /**
+   * Imports the export, and returns once the import has finished.
+   * @param options The import options, defaulting to the mapping configuration.
+   * @throws ImportInProgressException if the table is already being imported.
+   */
+  public void importFromS3(ImportOptions options) {
+    startImport(options).await();
+  }
+
+  /**
+   * Starts an import of the export in the background.
+   * @param options The import options, defaulting to the mapping configuration.
+   * @return The job running the import.
+   * @throws ImportInProgressException if the table is already being imported or refreshed.
+   */
+  public ImportJob startImport(ImportOptions options) {
+    var resolved = options.withDefaults(mappingConfiguration);
+    log.debug("importing to postgres with {}", resolved);
+    return importJobs.start(resolved);
+  }
+
+  /**
+   * Starts an incremental refresh in the background.
+   * @param options The import options, defaulting to the mapping configuration.
+   * @return Completes with the number of changes applied once the refresh has finished.
+   * @throws ImportInProgressException if the table is already being imported or refreshed.
+   */
+  public CompletableFuture<Long> startRefresh(ImportOptions options) {
+    return importJobs.startRefresh(options.withDefaults(mappingConfiguration));
+  }
+
+  public Optional<ImportJob> getImport(String id) {
+    return importJobs.get(id);
   }
 }
@@ -0,0 +1,295 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import com.guidewire.nosql2sql.postgres.ExportDataFile;
+import com.guidewire.nosql2sql.postgres.ImportCheckpoints;
+import com.guidewire.nosql2sql.postgres.ImportCheckpoints.Checkpoint;
+import com.guidewire.nosql2sql.postgres.LoadMode;
+import com.guidewire.nosql2sql.postgres.MappingConfiguration;
+import com.guidewire.nosql2sql.postgres.PostgresManager;
+import com.guidewire.nosql2sql.postgres.PostgresManager.ApplyType;
+import com.guidewire.nosql2sql.postgres.StagingSession;
+import com.guidewire.nosql2sql.postgres.TableMapping;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Imports the data files of a DynamoDB export in parallel. Each worker owns one export data file end to end, and writes
+ * its items through its own {@link com.guidewire.nosql2sql.postgres.RowWriter}, while the {@link ImportPipeline}
+ * downloads the next files and decodes the current one ahead of the worker.
+ * Files are read lazily and writers only buffer up to their flush thresholds, so memory stays flat regardless of the
+ * size of the export.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExportImporter {
+
+  private final PostgresManager postgresManager;
+  private final MappingConfiguration mappingConfiguration;
+  private final ImportCheckpoints importCheckpoints;
+
+  /**
+   * Imports every data file of the export, and returns once all of them have been written.
+   * @param exportLocation The S3 bucket or local directory holding the export, see {@link com.guidewire.nosql2sql.postgres.ExportSources}.
+   * @param options The import options, with every option set.
+   */
+  public void importExport(String exportLocation, ImportOptions options) {
+    importExport(exportLocation, options, new ImportProgress());
+  }
+
+  /**
+   * Imports every data file of the export, reporting to the given progress, and returns once all of them have been
+   * written or the import was cancelled through the progress.
+   * @param exportLocation The S3 bucket or local directory holding the export, see {@link com.guidewire.nosql2sql.postgres.ExportSources}.
+   * @param options The import options, with every option set.
+   * @param progress The progress of the import.
+   * @throws java.util.concurrent.CancellationException if the import was cancelled.
+   */
+  public void importExport(String exportLocation, ImportOptions options, ImportProgress progress) {
+    var resume = Boolean.TRUE.equals(options.getResume());
+    if (resume && Boolean.TRUE.equals(options.getStaged())) {
+      throw new IllegalArgumentException("Staged imports cannot be resumed, as their staging tables are recreated");
+    }
+    var exportDataFiles = postgresManager.listExportDataFiles(exportLocation);
+    if (exportDataFiles.isEmpty()) {
+      log.warn("No export data files found in {}", exportLocation);
+      return;
+    }
+
+    var export = exportDirectoryOf(exportDataFiles);
+    importCheckpoints.createTable();
+    if (!resume) {
+      importCheckpoints.clear(export);
+    }
+    var checkpoints = resume ? importCheckpoints.load(export) : Map.<String, Checkpoint>of();
+    var dataFiles = exportDataFiles.stream()
+        .filter(dataFile -> !Optional.ofNullable(checkpoints.get(dataFile.key())).map(Checkpoint::completed).orElse(false))
+        .toList();
+    if (resume) {
+      log.info("Resuming import, {} of {} export data files are already committed", exportDataFiles.size() - dataFiles.size(), exportDataFiles.size());
+      if (dataFiles.isEmpty()) {
+        return;
+      }
+    }
+    progress.start(dataFiles);
+    var threads = Math.max(1, Math.min(options.getWorkers(), dataFiles.size()));
+    log.info("Importing {} export data files with {} workers using {}", dataFiles.size(), threads, options.getLoadMode());
+
+    var session = Boolean.TRUE.equals(options.getStaged()) ? new StagingSession() : null;
+    var pool = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("import-worker-"));
+    try (var pipeline = new ImportPipeline(postgresManager, mappingConfiguration.getImporter(), exportLocation, dataFiles, threads,
+        progress::bytesRead)) {
+      try {
+        if (Boolean.TRUE.equals(options.getInferSchema())) {
+          inferSchema(exportLocation, dataFiles, pool, session, resume, progress);
+        }
+        forEach(dataFiles, pool, dataFile ->
+            importFile(pipeline, dataFile, options.getLoadMode(), session, resume, checkpoints.get(dataFile.key()), progress));
+        progress.checkCancelled();
+        if (session != null) {
+          // keys are built and tables swapped in only once every file has been loaded
+          forEach(session.getLiveTables(), pool, postgresManager::publishStagedTable);
+        }
+      } finally {
+        // workers may be waiting for a download, so they are stopped before the pipeline is closed
+        stopWorkers(pool);
+      }
+    } catch (RuntimeException e) {
+      // the workers have stopped, so nothing writes into the staging tables while they are dropped
+      if (session != null) {
+        postgresManager.abandonStaging(session);
+      }
+      throw e;
+    } finally {
+      stopWorkers(pool);
+    }
+  }
+
+  /**
+   * Applies the change records of an incremental export as upserts and deletes. An incremental export holds at most
+   * one change per item, its latest within the export window, so its data files are applied in parallel.
+   * @param exportLocation The S3 bucket or local directory holding the export.
+   * @param prefix The prefix the incremental export was written to.
+   * @param options The import options, with every option set.
+   * @return The number of changes applied.
+   * @throws IllegalStateException if a data file holds fewer or more changes than its manifest lists.
+   */
+  public long applyIncrementalExport(String exportLocation, String prefix, ImportOptions options) {
+    var dataFiles = postgresManager.listExportDataFiles(exportLocation, prefix);
+    if (dataFiles.isEmpty()) {
+      return 0;
+    }
+    var threads = Math.max(1, Math.min(options.getWorkers(), dataFiles.size()));
+    log.info("Applying {} incremental export data files with {} workers using {}", dataFiles.size(), threads, options.getLoadMode());
+    var applied = new LongAdder();
+    var pool = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("import-worker-"));
+    try {
+      forEach(dataFiles, pool, dataFile -> {
+        var count = 0L;
+        try (var writer = postgresManager.openWriter(options.getLoadMode());
+            var changes = postgresManager.readExportChanges(exportLocation, dataFile)) {
+          var iterator = changes.iterator();
+          while (iterator.hasNext()) {
+            checkInterrupted();
+            var change = iterator.next();
+            // the changes apply on top of a full import, whose tables must not be recreated
+            postgresManager.applyItem(change.item(), change.applyType(), writer, true);
+            count++;
+          }
+        }
+        // a window is only recorded once all of its changes were applied, so a partly read file fails the export
+        if (dataFile.hasItemCount() && dataFile.itemCount() != count) {
+          throw new IllegalStateException("Applied " + count + " changes of " + dataFile.key() + ", but its manifest lists " + dataFile.itemCount());
+        }
+        applied.add(count);
+      });
+    } finally {
+      stopWorkers(pool);
+    }
+    log.info("Applied {} changes of {}", applied.sum(), prefix);
+    return applied.sum();
+  }
+
+  /**
+   * Samples every data file and creates all of the tables and columns seen in the samples before any row is written,
+   * so the load itself runs without DDL in the hot path.
+   */
+  private void inferSchema(String exportLocation, List<ExportDataFile> dataFiles, ExecutorService pool, StagingSession session,
+      boolean resume, ImportProgress progress) {
+    var sampleSize = mappingConfiguration.getImporter().getInferenceSampleSize();
+    var inferred = new ConcurrentHashMap<String, TableMapping>();
+    forEach(dataFiles, pool, dataFile -> {
+      try (var items = postgresManager.readExportDataFile(exportLocation, dataFile)) {
+        var sample = (sampleSize > 0 ? items.limit(sampleSize) : items).peek(item -> {
+          progress.checkCancelled();
+          checkInterrupted();
+        });
+        postgresManager.inferTableMappings(sample)
+            .forEach((tableName, mapping) -> inferred.merge(tableName, mapping, TableMapping::merge));
+      }
+    });
+    log.info("Inferred schema of {} tables", inferred.size());
+    postgresManager.applyInferredSchema(session == null
+        ? inferred.values()
+        : inferred.values().stream().map(mapping -> mapping.renamed(session.stagingTableOf(mapping.getTableName()))).toList(), resume);
+  }
+
+  /**
+   * @return The directory all data files of an export are in, which scopes the checkpoints of the export.
+   */
+  static String exportDirectoryOf(List<ExportDataFile> dataFiles) {
+    var directory = dataFiles.get(0).key();
+    for (var dataFile : dataFiles) {
+      var key = dataFile.key();
+      var length = 0;
+      while (length < Math.min(directory.length(), key.length()) && directory.charAt(length) == key.charAt(length)) {
+        length++;
+      }
+      directory = directory.substring(0, length);
+    }
+    return directory.substring(0, directory.lastIndexOf('/') + 1);
+  }
+
+  private static <T> void forEach(Collection<T> elements, ExecutorService pool, Consumer<T> task) {
+    var failure = new CompletableFuture<Void>();
+    var tasks = elements.stream()
+        .map(element -> CompletableFuture.runAsync(() -> task.accept(element), pool)
+            .whenComplete((result, err) -> {
+              if (err != null) {
+                failure.completeExceptionally(err);
+              }
+            }))
+        .toArray(CompletableFuture[]::new);
+    // fail fast on the first element that cannot be processed, the caller stops the tasks still running
+    CompletableFuture.anyOf(CompletableFuture.allOf(tasks), failure).join();
+  }
+
+  /**
+   * Interrupts the workers and waits for them to stop. Workers stop at their next item once interrupted.
+   */
+  private static void stopWorkers(ExecutorService pool) {
+    pool.shutdownNow();
+    try {
+      if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+        log.warn("Timed out waiting for import workers to stop");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void checkInterrupted() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Import worker was stopped");
+    }
+  }
+
+  /**
+   * Imports a single data file, recording a checkpoint every time a fixed number of items has been flushed. A file with
+   * an earlier checkpoint continues after it, and upserts its items, as the items written after the last checkpoint
+   * of the interrupted import may already be in the table. The import stops at the next item once it is cancelled, and
+   * leaves the file with its last checkpoint. A file is only recorded as completed once it was read to its end and
+   * the number of items matches its manifest. Staged imports record no checkpoints, as their rows are dropped with the
+   * staging tables if the import fails.
+   */
+  private void importFile(ImportPipeline pipeline, ExportDataFile dataFile, LoadMode loadMode, StagingSession session, boolean resume,
+      Checkpoint checkpoint, ImportProgress progress) {
+    log.debug("Importing {} from {}", dataFile, checkpoint);
+    var checkpointed = session == null;
+    var interval = checkpointed ? mappingConfiguration.getImporter().getCheckpointInterval() : 0;
+    var applyType = checkpoint == null ? ApplyType.INSERT : ApplyType.UPDATE;
+    var committed = checkpoint == null ? 0 : checkpoint.itemsCommitted();
+    var written = committed;
+    if (checkpointed) {
+      importCheckpoints.record(dataFile.key(), committed, false);
+    }
+    progress.itemsImported(committed);
+
+    try (var writer = postgresManager.openWriter(loadMode);
+        var items = pipeline.read(dataFile)) {
+      var iterator = items.skip(committed).iterator();
+      while (iterator.hasNext()) {
+        progress.checkCancelled();
+        checkInterrupted();
+        var item = iterator.next();
+        if (session == null) {
+          // a resumed import keeps the tables holding the rows committed before it was interrupted
+          postgresManager.applyItem(item, applyType, writer, resume);
+        } else {
+          postgresManager.stageItem(item, writer, session);
+        }
+        written++;
+        progress.itemsImported(1);
+        if (interval > 0 && written - committed >= interval) {
+          writer.flush();
+          importCheckpoints.record(dataFile.key(), written, false);
+          committed = written;
+        }
+      }
+    }
+    // the file keeps its last checkpoint, so that a resumed import reads it again
+    if (dataFile.hasItemCount() && dataFile.itemCount() != written) {
+      throw new IllegalStateException("Imported " + written + " items of " + dataFile.key() + ", but its manifest lists " + dataFile.itemCount());
+    }
+    // closing the writer flushed the remaining rows
+    if (checkpointed) {
+      importCheckpoints.record(dataFile.key(), written, true);
+    }
+    log.debug("Imported {} items of {}", written, dataFile);
+    progress.fileCompleted();
+  }
+}
@@ -0,0 +1,132 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import com.guidewire.nosql2sql.postgres.ExportDataFile;
+import com.guidewire.nosql2sql.postgres.ItemAttribute;
+import com.guidewire.nosql2sql.postgres.PostgresManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Downloads the data files of an import, in the order they are imported, into a local spool directory ahead of the
+ * workers. At most a fixed number of files is held in the spool; a file is deleted as soon as its import is done.
+ */
+@Slf4j
+class ExportPrefetcher implements AutoCloseable {
+
+  private final PostgresManager postgresManager;
+  private final String exportLocation;
+  private final Path spoolDirectory;
+  private final LongConsumer bytesRead;
+  private final Semaphore spoolSlots;
+  private final ExecutorService downloader = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("import-prefetch-"));
+  private final Map<String, CompletableFuture<Path>> downloads = new ConcurrentHashMap<>();
+  private final Set<Path> spooledFiles = ConcurrentHashMap.newKeySet();
+  private volatile boolean closed;
+
+  /**
+   * Starts downloading the data files.
+   * @param spoolSlots Number of files that may be held in the spool, including the files being imported.
+   */
+  ExportPrefetcher(PostgresManager postgresManager, String exportLocation, List<ExportDataFile> dataFiles, int spoolSlots,
+      Path spoolDirectory, LongConsumer bytesRead) {
+    this.postgresManager = postgresManager;
+    this.exportLocation = exportLocation;
+    this.spoolDirectory = spoolDirectory;
+    this.bytesRead = bytesRead;
+    this.spoolSlots = new Semaphore(spoolSlots);
+    dataFiles.forEach(dataFile -> downloads.put(dataFile.key(), CompletableFuture.supplyAsync(() -> download(dataFile), downloader)));
+  }
+
+  private Path download(ExportDataFile dataFile) {
+    try {
+      spoolSlots.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Prefetch of " + dataFile.key() + " was interrupted");
+    }
+    Path spooled = null;
+    try {
+      spooled = Files.createTempFile(spoolDirectory, "export-", ".gz");
+      spooledFiles.add(spooled);
+      postgresManager.downloadExportDataFile(exportLocation, dataFile, spooled, bytesRead);
+      if (closed) {
+        // the spool may have been cleared while the file was being written
+        throw new CancellationException("Prefetch of " + dataFile.key() + " was stopped");
+      }
+      log.debug("Prefetched {} to {}", dataFile.key(), spooled);
+      return spooled;
+    } catch (IOException | RuntimeException e) {
+      release(spooled);
+      throw e instanceof IOException io ? new UncheckedIOException(io) : (RuntimeException) e;
+    }
+  }
+
+  /**
+   * Reads a data file from the spool, waiting for its download to finish. The file is removed from the spool when
+   * the returned stream is closed.
+   * @throws CancellationException if the waiting thread was interrupted, or the prefetcher was closed first.
+   */
+  Stream<Map<String, ItemAttribute>> read(ExportDataFile dataFile) {
+    Path spooled;
+    try {
+      spooled = downloads.get(dataFile.key()).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Waiting for the prefetch of " + dataFile.key() + " was interrupted");
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+    }
+    try {
+      return postgresManager.readExportDataFile(spooled, dataFile).onClose(() -> release(spooled));
+    } catch (RuntimeException e) {
+      release(spooled);
+      throw e;
+    }
+  }
+
+  private void release(Path spooled) {
+    if (spooled == null) {
+      return;
+    }
+    delete(spooled);
+    spoolSlots.release();
+  }
+
+  private void delete(Path spooled) {
+    try {
+      Files.deleteIfExists(spooled);
+    } catch (IOException e) {
+      log.warn("Failed to delete {}", spooled, e);
+    }
+    spooledFiles.remove(spooled);
+  }
+
+  /**
+   * Stops the remaining downloads and removes every file left in the spool. Downloads that have not finished are
+   * cancelled, so no reader waits for them.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    // queued downloads never run after this, their futures are only completed by cancelling them
+    downloader.shutdownNow();
+    downloads.values().forEach(download -> download.cancel(true));
+    spooledFiles.forEach(this::delete);
+  }
+}
@@ -0,0 +1,22 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import lombok.Getter;
+
+/**
+ * Thrown when an import or refresh is requested for a table that another import or refresh is still writing.
+ */
+@Getter
+public class ImportInProgressException extends RuntimeException {
+
+  private final String jobId;
+
+  public ImportInProgressException(String tableName, String jobId) {
+    super("Import " + jobId + " of " + tableName + " is still running");
+    this.jobId = jobId;
+  }
+
+  public ImportInProgressException(String tableName) {
+    super("Refresh of " + tableName + " is still running");
+    this.jobId = null;
+  }
+}
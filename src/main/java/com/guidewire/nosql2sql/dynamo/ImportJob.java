@@ -0,0 +1,121 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An import running in the background, identified by its id.
+ */
+@Slf4j
+@Getter
+public class ImportJob {
+
+  public enum State {
+    RUNNING, SUCCEEDED, FAILED, CANCELLED
+  }
+
+  private final String id;
+  private final String tableName;
+  private final ImportOptions options;
+  private final ImportProgress progress = new ImportProgress();
+  private final Instant startedAt = Instant.now();
+  private volatile Instant finishedAt;
+  private volatile State state = State.RUNNING;
+  private volatile String error;
+  @Getter(AccessLevel.NONE)
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+  ImportJob(String id, String tableName, ImportOptions options) {
+    this.id = id;
+    this.tableName = tableName;
+    this.options = options;
+  }
+
+  /**
+   * Runs the import on the calling thread.
+   * @param task The import.
+   * @param onFinish Called once the import has finished, before threads waiting for the job are released.
+   */
+  void run(Runnable task, Runnable onFinish) {
+    Throwable failure = null;
+    try {
+      task.run();
+      state = State.SUCCEEDED;
+    } catch (Throwable e) {
+      // the import fails with the first failure of its workers, errors such as running out of memory included, so
+      // that the job never stays running
+      failure = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+      if (progress.isCancelled()) {
+        log.info("Import {} was cancelled", id);
+        state = State.CANCELLED;
+      } else {
+        log.error("Import {} failed", id, e);
+        state = State.FAILED;
+      }
+      error = failure.getMessage() != null ? failure.getMessage() : failure.toString();
+    } finally {
+      finishedAt = Instant.now();
+      try {
+        onFinish.run();
+      } finally {
+        if (failure == null) {
+          completion.complete(null);
+        } else {
+          completion.completeExceptionally(failure);
+        }
+      }
+    }
+    if (failure instanceof Error fatal) {
+      throw fatal;
+    }
+  }
+
+  /**
+   * Requests the import to stop. The workers stop at their next item, leaving resumable checkpoints, and staged
+   * imports drop their staging tables.
+   * @return false if the import had already finished.
+   */
+  public boolean cancel() {
+    if (isDone()) {
+      return false;
+    }
+    progress.cancel();
+    return true;
+  }
+
+  public boolean isDone() {
+    return state != State.RUNNING;
+  }
+
+  /**
+   * Waits for the import to finish.
+   * @throws RuntimeException the exception the import failed with.
+   */
+  public void await() {
+    try {
+      completion.join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+  }
+
+  /**
+   * @return A snapshot of the state and progress of this job.
+   */
+  public Status status() {
+    var remaining = progress.getRemaining();
+    return new Status(id, tableName, state, error, startedAt, finishedAt, progress.getFiles(), progress.getCompletedFiles(),
+        progress.getExpectedItems(), progress.getImportedItems(), progress.getBytesRead(), Math.round(progress.getItemsPerSecond()),
+        progress.getElapsed().toSeconds(), isDone() || remaining == null ? null : remaining.toSeconds());
+  }
+
+  public record Status(String id, String tableName, State state, String error, Instant startedAt, Instant finishedAt, int files,
+                       int completedFiles, long expectedItems, long importedItems, long bytesRead, long itemsPerSecond,
+                       long elapsedSeconds, Long etaSeconds) {
+
+  }
+}
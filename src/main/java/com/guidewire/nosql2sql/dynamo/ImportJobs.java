@@ -0,0 +1,120 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import com.guidewire.nosql2sql.postgres.MappingConfiguration;
+import jakarta.annotation.PreDestroy;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs imports in the background, and keeps track of them by id. Only one import or refresh of a table runs at a time,
+ * so that a refresh cannot write to tables an import is dropping or swapping.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportJobs {
+
+  /**
+   * Number of finished jobs kept for status requests
+   */
+  private static final int FINISHED_JOBS_RETAINED = 100;
+
+  private final ExportImporter exportImporter;
+  private final IncrementalRefresh incrementalRefresh;
+  private final MappingConfiguration mappingConfiguration;
+  private final ExecutorService executor = Executors.newCachedThreadPool(new CustomizableThreadFactory("import-job-"));
+  private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+  private final Map<String, ImportJob> runningJobs = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<Long>> runningRefreshes = new ConcurrentHashMap<>();
+
+  /**
+   * Starts an import of the configured export in the background.
+   * @param options The import options, with every option set.
+   * @return The started job.
+   * @throws ImportInProgressException if the table is already being imported or refreshed.
+   */
+  public synchronized ImportJob start(ImportOptions options) {
+    var tableName = mappingConfiguration.getDynamodb().getDynamoTableName();
+    checkNotRunning(tableName);
+    var job = new ImportJob(UUID.randomUUID().toString(), tableName, options);
+    runningJobs.put(tableName, job);
+    pruneFinishedJobs();
+    jobs.put(job.getId(), job);
+    try {
+      executor.execute(() -> job.run(
+          () -> exportImporter.importExport(exportLocation(), options, job.getProgress()),
+          () -> runningJobs.remove(tableName, job)));
+    } catch (RejectedExecutionException e) {
+      runningJobs.remove(tableName, job);
+      jobs.remove(job.getId());
+      throw e;
+    }
+    log.info("Started import {} of {} with {}", job.getId(), tableName, options);
+    return job;
+  }
+
+  /**
+   * Starts an incremental refresh of the configured table in the background.
+   * @param options The import options, with every option set.
+   * @return Completes with the number of changes applied once the refresh has finished.
+   * @throws ImportInProgressException if the table is already being imported or refreshed.
+   */
+  public synchronized CompletableFuture<Long> startRefresh(ImportOptions options) {
+    var tableName = mappingConfiguration.getDynamodb().getDynamoTableName();
+    checkNotRunning(tableName);
+    var refresh = incrementalRefresh.startRefresh(options);
+    runningRefreshes.put(tableName, refresh);
+    refresh.whenComplete((changes, e) -> runningRefreshes.remove(tableName, refresh));
+    log.info("Started refresh of {} with {}", tableName, options);
+    return refresh;
+  }
+
+  private void checkNotRunning(String tableName) {
+    var running = runningJobs.get(tableName);
+    if (running != null) {
+      throw new ImportInProgressException(tableName, running.getId());
+    }
+    if (runningRefreshes.containsKey(tableName)) {
+      throw new ImportInProgressException(tableName);
+    }
+  }
+
+  private String exportLocation() {
+    return Optional.ofNullable(mappingConfiguration.getImporter().getExportLocation())
+        .orElse(mappingConfiguration.getS3().getBucketName());
+  }
+
+  public Optional<ImportJob> get(String id) {
+    return Optional.ofNullable(jobs.get(id));
+  }
+
+  private void pruneFinishedJobs() {
+    var finished = jobs.values().stream().filter(ImportJob::isDone).toList();
+    finished.stream()
+        .sorted(Comparator.comparing(ImportJob::getFinishedAt))
+        .limit(Math.max(0, finished.size() - FINISHED_JOBS_RETAINED))
+        .forEach(job -> jobs.remove(job.getId()));
+  }
+
+  @PreDestroy
+  void shutdown() throws InterruptedException {
+    runningJobs.values().forEach(ImportJob::cancel);
+    executor.shutdown();
+    if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+      log.warn("Imports did not stop in time");
+      executor.shutdownNow();
+    }
+  }
+}
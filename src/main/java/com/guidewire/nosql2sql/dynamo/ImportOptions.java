@@ -0,0 +1,55 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import com.guidewire.nosql2sql.postgres.LoadMode;
+import com.guidewire.nosql2sql.postgres.MappingConfiguration;
+import java.util.Optional;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Options for a single import. Options that are not set fall back to the values in the mapping configuration.
+ */
+@Builder(toBuilder = true)
+@Getter
+@ToString
+public class ImportOptions {
+
+  /**
+   * Strategy used to write rows
+   */
+  private LoadMode loadMode;
+  /**
+   * Number of export data files imported in parallel
+   */
+  private Integer workers;
+  /**
+   * If true, a sample of the export is read first to create every table with its full column set
+   */
+  private Boolean inferSchema;
+  /**
+   * If true, tables are loaded into unlogged staging tables that replace the live tables once the import completes
+   */
+  private Boolean staged;
+  /**
+   * If true, export data files committed by an earlier, interrupted import are skipped, and partially committed files
+   * continue after their last checkpoint
+   */
+  private Boolean resume;
+
+  /**
+   * Fills every option that is not set from the mapping configuration.
+   * @param mappingConfiguration The configured defaults.
+   * @return A copy of these options with every option set.
+   */
+  public ImportOptions withDefaults(MappingConfiguration mappingConfiguration) {
+    var importer = mappingConfiguration.getImporter();
+    return toBuilder()
+        .loadMode(Optional.ofNullable(loadMode).orElse(mappingConfiguration.getPostgresql().getLoadMode()))
+        .workers(Optional.ofNullable(workers).orElse(importer.getWorkers()))
+        .inferSchema(Optional.ofNullable(inferSchema).orElse(importer.isInferSchema()))
+        .staged(Optional.ofNullable(staged).orElse(importer.isStaged()))
+        .resume(Optional.ofNullable(resume).orElse(false))
+        .build();
+  }
+}
@@ -0,0 +1,76 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import com.guidewire.nosql2sql.postgres.ExportDataFile;
+import com.guidewire.nosql2sql.postgres.ItemAttribute;
+import com.guidewire.nosql2sql.postgres.MappingConfiguration;
+import com.guidewire.nosql2sql.postgres.PostgresManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * The stages feeding the workers of an import, so that the network, inflating and decoding, and the database are
+ * busy at the same time: a prefetcher downloads the next data files into the local spool while earlier files are
+ * imported, and a decoder thread per worker inflates and decodes its file into a bounded buffer that the worker
+ * writes rows from. Either stage can be turned off, in which case its work runs on the thread of the next stage.
+ */
+class ImportPipeline implements AutoCloseable {
+
+  private final PostgresManager postgresManager;
+  private final String exportLocation;
+  private final LongConsumer bytesRead;
+  private final int decodeBuffer;
+  private final ExportPrefetcher prefetcher;
+  private final ExecutorService decoders;
+
+  ImportPipeline(PostgresManager postgresManager, MappingConfiguration.Importer importer, String exportLocation,
+      List<ExportDataFile> dataFiles, int workers, LongConsumer bytesRead) {
+    this.postgresManager = postgresManager;
+    this.exportLocation = exportLocation;
+    this.bytesRead = bytesRead;
+    this.decodeBuffer = importer.getDecodeBuffer();
+    // local exports are already on disk, downloading them ahead gains nothing
+    this.prefetcher = importer.getPrefetch() > 0 && !postgresManager.isLocalExport(exportLocation)
+        ? new ExportPrefetcher(postgresManager, exportLocation, dataFiles, workers + importer.getPrefetch(), spoolDirectory(importer), bytesRead)
+        : null;
+    this.decoders = decodeBuffer > 0 ? Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("import-decoder-")) : null;
+  }
+
+  private static Path spoolDirectory(MappingConfiguration.Importer importer) {
+    var directory = Optional.ofNullable(importer.getSpoolDirectory()).orElse(Path.of(System.getProperty("java.io.tmpdir")));
+    try {
+      return Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the items of a data file through the enabled stages. Closing the returned stream releases the file.
+   */
+  Stream<Map<String, ItemAttribute>> read(ExportDataFile dataFile) {
+    var items = prefetcher != null
+        ? prefetcher.read(dataFile)
+        : postgresManager.readExportDataFile(exportLocation, dataFile, bytesRead);
+    return decoders != null ? ReadAheadStream.of(items, decodeBuffer, decoders) : items;
+  }
+
+  @Override
+  public void close() {
+    if (prefetcher != null) {
+      prefetcher.close();
+    }
+    if (decoders != null) {
+      decoders.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import com.guidewire.nosql2sql.postgres.ExportDataFile;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks the progress of an import against the item counts of the export manifest, and carries its cancellation
+ * request to the import workers.
+ */
+@Slf4j
+public class ImportProgress {
+
+  private final long startedAt = System.nanoTime();
+  private final AtomicInteger completedFiles = new AtomicInteger();
+  private final LongAdder importedItems = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private volatile int files;
+  private volatile long expectedItems;
+  private volatile boolean cancelled;
+
+  void start(List<ExportDataFile> dataFiles) {
+    this.files = dataFiles.size();
+    this.expectedItems = dataFiles.stream().filter(ExportDataFile::hasItemCount).mapToLong(ExportDataFile::itemCount).sum();
+  }
+
+  void itemsImported(long items) {
+    importedItems.add(items);
+  }
+
+  void bytesRead(long bytes) {
+    bytesRead.add(bytes);
+  }
+
+  void fileCompleted() {
+    var done = completedFiles.incrementAndGet();
+    var imported = getImportedItems();
+    if (expectedItems > 0) {
+      log.info("Imported {} of {} files, {} of {} items ({}%)", done, files, imported, expectedItems, imported * 100 / expectedItems);
+    } else {
+      log.info("Imported {} of {} files, {} items", done, files, imported);
+    }
+  }
+
+  /**
+   * Requests the import to stop. Workers stop at their next item, and the import fails with a
+   * {@link CancellationException}.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  void checkCancelled() {
+    if (cancelled) {
+      throw new CancellationException("Import was cancelled");
+    }
+  }
+
+  public int getFiles() {
+    return files;
+  }
+
+  public int getCompletedFiles() {
+    return completedFiles.get();
+  }
+
+  public long getExpectedItems() {
+    return expectedItems;
+  }
+
+  public long getImportedItems() {
+    return importedItems.sum();
+  }
+
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  public Duration getElapsed() {
+    return Duration.ofNanos(System.nanoTime() - startedAt);
+  }
+
+  public double getItemsPerSecond() {
+    var seconds = getElapsed().toMillis() / 1000.0;
+    return seconds > 0 ? getImportedItems() / seconds : 0;
+  }
+
+  /**
+   * Estimates the remaining time from the average rate so far.
+   * @return The estimate, or null if the export manifest has no item counts or no item was imported yet.
+   */
+  public Duration getRemaining() {
+    var rate = getItemsPerSecond();
+    if (expectedItems <= 0 || rate <= 0) {
+      return null;
+    }
+    return Duration.ofSeconds((long) Math.ceil(Math.max(0, expectedItems - getImportedItems()) / rate));
+  }
+}
@@ -0,0 +1,102 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import com.guidewire.nosql2sql.postgres.ExportState;
+import com.guidewire.nosql2sql.postgres.MappingConfiguration;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps PostgreSQL up to date with DynamoDB through incremental exports. Each refresh exports the changes made since
+ * the last recorded export and applies them as upserts and deletes, so its cost follows the volume of changes rather
+ * than the size of the table. A full export and import is needed once, before the first refresh.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IncrementalRefresh {
+
+  /**
+   * Shortest window DynamoDB accepts for an incremental export
+   */
+  static final Duration MIN_WINDOW = Duration.ofMinutes(15);
+  /**
+   * Longest window DynamoDB accepts for an incremental export
+   */
+  static final Duration MAX_WINDOW = Duration.ofHours(24);
+
+  private final DynamoExportJob dynamoExportJob;
+  private final ExportImporter exportImporter;
+  private final ExportState exportState;
+  private final MappingConfiguration mappingConfiguration;
+  private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("refresh-"));
+
+  /**
+   * Starts a refresh in the background.
+   * @param options The import options, defaulting to the mapping configuration.
+   * @return Completes with the number of changes applied once the refresh has finished.
+   */
+  public CompletableFuture<Long> startRefresh(ImportOptions options) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return refresh(options);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CompletionException(e);
+      }
+    }, refreshExecutor);
+  }
+
+  /**
+   * Exports and applies every change since the last recorded export, in windows of at most 24 hours. The end of each
+   * window is recorded once all of its changes have been applied, and a window whose data files cannot be read in full
+   * fails the refresh, so a failed refresh continues from the last applied window.
+   * Changes of the last 15 minutes are left to the next refresh.
+   * @param options The import options, defaulting to the mapping configuration.
+   * @return The number of changes applied.
+   * @throws InterruptedException if interrupted while waiting for an export.
+   */
+  public long refresh(ImportOptions options) throws InterruptedException {
+    var resolved = options.withDefaults(mappingConfiguration);
+    var tableName = mappingConfiguration.getDynamodb().getDynamoTableName();
+    var from = exportState.exportedTo(tableName)
+        .orElseThrow(() -> new IllegalStateException("No export of " + tableName + " was recorded, export and import the table first"));
+
+    var applied = 0L;
+    var to = windowEnd(from, Instant.now());
+    while (to != null) {
+      var prefix = dynamoExportJob.exportIncrement(tableName, from, to);
+      applied += exportImporter.applyIncrementalExport(mappingConfiguration.getS3().getBucketName(), prefix, resolved);
+      exportState.record(tableName, to);
+      from = to;
+      to = windowEnd(from, Instant.now());
+    }
+    log.info("Refreshed {} up to {} with {} changes", tableName, from, applied);
+    return applied;
+  }
+
+  /**
+   * @return The end of the next export window starting at from, or null if it would be shorter than the shortest
+   * window.
+   */
+  static Instant windowEnd(Instant from, Instant now) {
+    if (Duration.between(from, now).compareTo(MIN_WINDOW) < 0) {
+      return null;
+    }
+    var end = from.plus(MAX_WINDOW);
+    return end.isBefore(now) ? end : now;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    refreshExecutor.shutdownNow();
+  }
+}
@@ -0,0 +1,95 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Consumes a stream on another thread into a bounded buffer, so that producing the elements, e.g. inflating and
+ * decoding an export data file, overlaps with processing them.
+ */
+final class ReadAheadStream {
+
+  private static final Object END = new Object();
+
+  private ReadAheadStream() {
+  }
+
+  /**
+   * @param source The stream to read ahead. It is closed by the producing thread once it is exhausted, or when the
+   * returned stream is closed.
+   * @param capacity Number of elements buffered ahead of the consumer.
+   * @param executor Runs the producing thread.
+   * @return A stream of the elements of the source, in order.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> Stream<T> of(Stream<T> source, int capacity, ExecutorService executor) {
+    var buffer = new ArrayBlockingQueue<Object>(capacity);
+    var failure = new AtomicReference<Throwable>();
+    var producer = executor.submit(() -> {
+      try (source) {
+        var elements = source.iterator();
+        while (elements.hasNext()) {
+          buffer.put(elements.next());
+        }
+      } catch (InterruptedException e) {
+        // the consumer closed the stream
+        return;
+      } catch (RuntimeException | Error e) {
+        // errors are handed to the consumer as well, which would otherwise wait for the next element forever
+        failure.set(e);
+      }
+      try {
+        buffer.put(END);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+
+    var iterator = new Iterator<T>() {
+      private Object next;
+
+      @Override
+      public boolean hasNext() {
+        if (next == null) {
+          try {
+            next = buffer.take();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the next element");
+          }
+        }
+        if (next == END) {
+          var error = failure.get();
+          if (error instanceof Error fatal) {
+            throw fatal;
+          }
+          if (error != null) {
+            throw (RuntimeException) error;
+          }
+          return false;
+        }
+        return true;
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        var element = (T) next;
+        next = null;
+        return element;
+      }
+    };
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(() -> producer.cancel(true));
+  }
+}
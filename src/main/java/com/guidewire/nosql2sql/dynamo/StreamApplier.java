@@ -0,0 +1,225 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.guidewire.nosql2sql.postgres.LoadMode;
+import com.guidewire.nosql2sql.postgres.MappingConfiguration;
+import com.guidewire.nosql2sql.postgres.PipelineMetrics;
+import com.guidewire.nosql2sql.postgres.PostgresManager;
+import com.guidewire.nosql2sql.postgres.RowWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies stream records on a fixed number of lanes. Each record is routed to a lane by the hash of its key, and each
+ * lane applies its records in order on a single thread with its own {@link RowWriter}, so changes to the same item
+ * keep their order while different items are applied in parallel.
+ * <p>
+ * With a coalescing window, a lane collects the records it receives for the window before applying them, and keeps
+ * only the latest record of each item. Inserts and modifications are both applied as a replacement of the row, so the
+ * latest image is all that has to be written. A removal of an item that was inserted within the window cancels both
+ * records. The remaining records are applied in the order of their latest record.
+ * <p>
+ * The number of records waiting across all lanes is bounded. Batches that do not fit are rejected as a whole, so a
+ * caller can safely retry them.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StreamApplier {
+
+  private static final String INSERT = "INSERT";
+  private static final String REMOVE = "REMOVE";
+
+  private final PostgresManager postgresManager;
+  private final MappingConfiguration mappingConfiguration;
+  private final PipelineMetrics pipelineMetrics;
+  private final List<Lane> lanes = new ArrayList<>();
+  private Semaphore capacity;
+  private ExecutorService executor;
+  private volatile boolean running;
+
+  @PostConstruct
+  void start() {
+    var sync = mappingConfiguration.getSync();
+    var batch = mappingConfiguration.getPostgresql().getBatch();
+    var loadMode = batch.isSyncEnabled() ? LoadMode.BATCH : LoadMode.INSERT;
+    var laneCount = Math.max(1, sync.getLanes());
+
+    capacity = new Semaphore(sync.getQueueCapacity());
+    pipelineMetrics.syncQueueDepth(() -> sync.getQueueCapacity() - capacity.availablePermits());
+    executor = Executors.newFixedThreadPool(laneCount, new CustomizableThreadFactory("stream-lane-"));
+    running = true;
+    for (int i = 0; i < laneCount; i++) {
+      var lane = new Lane(postgresManager.openWriter(loadMode), batch.getMaxLatency().toNanos(), sync.getCoalesceWindow().toNanos());
+      lanes.add(lane);
+      executor.execute(lane);
+    }
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    // lanes drain the records that were already accepted before they close their writers
+    running = false;
+    executor.shutdown();
+    if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+      log.warn("Timed out waiting for pending stream records to be written");
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Queues a batch of records to be applied.
+   * @param records The records, in stream order.
+   * @throws SyncQueueFullException if the batch does not fit in the queue, in which case none of it was queued.
+   */
+  public void enqueue(List<Record> records) {
+    var retryAfter = mappingConfiguration.getSync().getRetryAfter();
+    if (!running) {
+      throw new SyncQueueFullException("Stream records are not accepted while shutting down", retryAfter);
+    }
+    if (records.size() > mappingConfiguration.getSync().getQueueCapacity()) {
+      throw new IllegalArgumentException("Batch of " + records.size() + " records is larger than the queue capacity");
+    }
+    if (!capacity.tryAcquire(records.size())) {
+      throw new SyncQueueFullException("Too many stream records are waiting to be applied", retryAfter);
+    }
+    records.forEach(rec -> laneOf(rec).queue.add(rec));
+  }
+
+  private Lane laneOf(Record rec) {
+    var keys = keysOf(rec);
+    return lanes.get(keys == null ? 0 : Math.floorMod(keys.hashCode(), lanes.size()));
+  }
+
+  private static Map<?, ?> keysOf(Record rec) {
+    return rec.getDynamodb() != null ? rec.getDynamodb().getKeys() : null;
+  }
+
+  /**
+   * The latest record of an item within a coalescing window.
+   * @param rec The latest record.
+   * @param inserted true if the first record of the item within the window inserted it.
+   */
+  private record Pending(Record rec, boolean inserted) {
+  }
+
+  private class Lane implements Runnable {
+
+    private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>();
+    private final RowWriter writer;
+    private final long pollNanos;
+    private final long windowNanos;
+    // the latest record of each item received in the current window, in the order of their latest record
+    private final Map<Map<?, ?>, Pending> window = new LinkedHashMap<>();
+    private long windowEnd;
+
+    Lane(RowWriter writer, long pollNanos, long windowNanos) {
+      this.writer = writer;
+      this.pollNanos = Math.max(1, pollNanos);
+      this.windowNanos = Math.max(0, windowNanos);
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (running || !queue.isEmpty()) {
+          var rec = queue.poll(nextPollNanos(), TimeUnit.NANOSECONDS);
+          if (rec != null) {
+            accept(rec);
+          }
+          if (!window.isEmpty() && System.nanoTime() - windowEnd >= 0) {
+            applyWindow();
+          }
+          if (rec == null) {
+            flushExpired();
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        applyWindow();
+        closeWriter();
+      }
+    }
+
+    // rows buffered by earlier records are written here, their failure must not stop the lane
+    private void flushExpired() {
+      try {
+        writer.flushExpired();
+      } catch (Exception e) {
+        log.error("Failed to write buffered stream records", e);
+      }
+    }
+
+    private void closeWriter() {
+      try {
+        writer.close();
+      } catch (Exception e) {
+        log.error("Failed to write buffered stream records", e);
+      }
+    }
+
+    private long nextPollNanos() {
+      return window.isEmpty() ? pollNanos : Math.min(pollNanos, Math.max(0, windowEnd - System.nanoTime()));
+    }
+
+    private void accept(Record rec) {
+      var keys = keysOf(rec);
+      if (windowNanos == 0 || keys == null) {
+        applyWindow();
+        apply(rec);
+        return;
+      }
+      if (window.isEmpty()) {
+        windowEnd = System.nanoTime() + windowNanos;
+      }
+      // removed and put again, so the item moves to the position of its latest record
+      var previous = window.remove(keys);
+      if (previous == null) {
+        window.put(keys, new Pending(rec, INSERT.equals(rec.getEventName())));
+        return;
+      }
+      coalesced();
+      if (previous.inserted() && REMOVE.equals(rec.getEventName())) {
+        // the item did not exist before the window and does not exist after it
+        coalesced();
+      } else {
+        window.put(keys, new Pending(rec, previous.inserted()));
+      }
+    }
+
+    private void applyWindow() {
+      window.values().forEach(pending -> apply(pending.rec()));
+      window.clear();
+    }
+
+    private void coalesced() {
+      pipelineMetrics.syncRecordCoalesced();
+      capacity.release();
+    }
+
+    private void apply(Record rec) {
+      try {
+        postgresManager.applyAwsRecord(rec, writer);
+      } catch (Exception e) {
+        log.error("Failed to apply stream record {}", rec.getEventID(), e);
+      } finally {
+        capacity.release();
+      }
+    }
+  }
+}
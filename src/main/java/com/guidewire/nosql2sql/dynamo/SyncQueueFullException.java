@@ -0,0 +1,19 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import java.time.Duration;
+import lombok.Getter;
+
+/**
+ * Thrown when records received on /api/syncData cannot be queued because too many records are already waiting to be
+ * applied. Callers should retry the same request later.
+ */
+@Getter
+public class SyncQueueFullException extends RuntimeException {
+
+  private final Duration retryAfter;
+
+  public SyncQueueFullException(String message, Duration retryAfter) {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+}
@@ -0,0 +1,210 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.guidewire.nosql2sql.postgres.MappingConfiguration.Batch;
+import com.guidewire.nosql2sql.postgres.SqlTemplateCache.InsertTemplate;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Buffers rows per table and column set, and inserts each buffer with a single round trip once it reaches the
+ * configured row count, byte size or latency.
+ * <p>
+ * Upserts are buffered separately from plain inserts. A later upsert of a row replaces the earlier one in the same
+ * buffer, and a buffer still holding an earlier version of the row under another column set is sent first, so changes
+ * to the same row are applied in order.
+ * <p>
+ * A buffer that fails to insert is discarded and the failure is thrown, so that callers do not take its rows as
+ * written.
+ */
+@Slf4j
+public class BatchRowWriter implements RowWriter {
+
+  // PostgreSQL accepts at most 65535 bind variables in a single statement
+  private static final int MAX_BIND_VARIABLES = 65535;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final SqlTemplateCache sqlTemplateCache;
+  private final Batch batch;
+  private final PipelineMetrics pipelineMetrics;
+  private final Timer statementTimer;
+  private final long maxLatencyNanos;
+  private final Map<Shape, Buffer> buffers = new LinkedHashMap<>();
+  private final Map<RowKey, Buffer> pendingKeys = new HashMap<>();
+
+  /**
+   * Creates a new batching writer.
+   * @param jdbcTemplate The template used to run the batched statements.
+   * @param sqlTemplateCache The cache of insert statements.
+   * @param batch The flush thresholds and statement shape.
+   * @param pipelineMetrics The meters rows and statements are recorded in.
+   */
+  public BatchRowWriter(JdbcTemplate jdbcTemplate, SqlTemplateCache sqlTemplateCache, Batch batch, PipelineMetrics pipelineMetrics) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.sqlTemplateCache = sqlTemplateCache;
+    this.batch = batch;
+    this.pipelineMetrics = pipelineMetrics;
+    this.statementTimer = pipelineMetrics.statementTimer(batch.getStatement().name().toLowerCase(Locale.ROOT));
+    this.maxLatencyNanos = batch.getMaxLatency().toNanos();
+  }
+
+  @Override
+  public void insert(TableMapping tableMapping, Map<String, Object> columns) {
+    var shape = new Shape(tableMapping.getTableName(), List.copyOf(columns.keySet()), false);
+    var buffer = buffers.computeIfAbsent(shape, s -> new Buffer(s, sqlTemplateCache.insert(tableMapping, s.columns())));
+    buffer.add(columns, null);
+    afterAdd(buffer);
+  }
+
+  @Override
+  public void upsert(TableMapping tableMapping, Map<String, Object> columns) {
+    var shape = new Shape(tableMapping.getTableName(), List.copyOf(columns.keySet()), true);
+    var buffer = buffers.computeIfAbsent(shape, s -> new Buffer(s, sqlTemplateCache.upsert(tableMapping, s.columns())));
+    var key = new RowKey(shape.tableName(), tableMapping.getKeyColumns().stream().map(columns::get).toList());
+    var pending = pendingKeys.get(key);
+    if (pending != null && pending != buffer) {
+      flush(pending);
+    }
+    buffer.add(columns, key);
+    pendingKeys.put(key, buffer);
+    afterAdd(buffer);
+  }
+
+  private void afterAdd(Buffer buffer) {
+    if (buffer.rows.size() >= batch.getMaxRows() || buffer.bytes >= batch.getMaxBytes()) {
+      flush(buffer);
+    }
+    flushExpired();
+  }
+
+  @Override
+  public void flush(String tableName) {
+    buffers.values().stream()
+        .filter(buffer -> buffer.shape.tableName().equals(tableName))
+        .forEach(this::flush);
+  }
+
+  @Override
+  public void flush() {
+    buffers.values().forEach(this::flush);
+  }
+
+  @Override
+  public void flushExpired() {
+    var now = System.nanoTime();
+    buffers.values().stream()
+        .filter(buffer -> !buffer.rows.isEmpty() && now - buffer.firstRowNanos >= maxLatencyNanos)
+        .forEach(this::flush);
+  }
+
+  @Override
+  public void close() {
+    try {
+      flush();
+    } finally {
+      buffers.clear();
+    }
+  }
+
+  private void flush(Buffer buffer) {
+    if (buffer.rows.isEmpty()) {
+      return;
+    }
+    var start = System.nanoTime();
+    try {
+      var template = buffer.template;
+      var argTypes = template.argTypes();
+      switch (batch.getStatement()) {
+        case JDBC_BATCH -> jdbcTemplate.batchUpdate(template.sql(), buffer.rows, argTypes);
+        case MULTI_ROW_VALUES -> {
+          var rowsPerStatement = Math.max(1, MAX_BIND_VARIABLES / Math.max(1, argTypes.length));
+          for (int from = 0; from < buffer.rows.size(); from += rowsPerStatement) {
+            var chunk = buffer.rows.subList(from, Math.min(from + rowsPerStatement, buffer.rows.size()));
+            var args = chunk.stream().flatMap(Arrays::stream).toArray();
+            var chunkArgTypes = new int[args.length];
+            for (int i = 0; i < chunk.size(); i++) {
+              System.arraycopy(argTypes, 0, chunkArgTypes, i * argTypes.length, argTypes.length);
+            }
+            jdbcTemplate.update(template.sql(chunk.size()), args, chunkArgTypes);
+          }
+        }
+      }
+      log.debug("Flushed {} rows into {}", buffer.rows.size(), buffer.shape.tableName());
+      pipelineMetrics.rowsWritten(buffer.shape.tableName(), buffer.rows.size());
+    } catch (RuntimeException e) {
+      log.error("Batch insert of {} rows into {} failed", buffer.rows.size(), buffer.shape.tableName(), e);
+      pipelineMetrics.rowsFailed(buffer.shape.tableName(), buffer.rows.size());
+      throw new IllegalStateException("Batch insert into " + buffer.shape.tableName() + " failed", e);
+    } finally {
+      statementTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      pendingKeys.keySet().removeAll(buffer.rowIndexByKey.keySet());
+      buffer.reset();
+    }
+  }
+
+  private static long estimateSize(Object value) {
+    if (value instanceof String string) {
+      return string.length();
+    }
+    return value instanceof byte[] bytes ? bytes.length : 16;
+  }
+
+  private record Shape(String tableName, List<String> columns, boolean upsert) {
+
+  }
+
+  private record RowKey(String tableName, List<Object> values) {
+
+  }
+
+  private static class Buffer {
+
+    private final Shape shape;
+    private final InsertTemplate template;
+    private final List<Object[]> rows = new ArrayList<>();
+    private final Map<RowKey, Integer> rowIndexByKey = new HashMap<>();
+    private long bytes;
+    private long firstRowNanos;
+
+    Buffer(Shape shape, InsertTemplate template) {
+      this.shape = shape;
+      this.template = template;
+    }
+
+    void add(Map<String, Object> columns, RowKey key) {
+      if (rows.isEmpty()) {
+        firstRowNanos = System.nanoTime();
+      }
+      var row = new Object[shape.columns().size()];
+      for (int i = 0; i < row.length; i++) {
+        row[i] = columns.get(shape.columns().get(i));
+        bytes += estimateSize(row[i]);
+      }
+      if (key == null) {
+        rows.add(row);
+        return;
+      }
+      // a single statement may not upsert the same row twice, and only the latest version matters
+      var index = rowIndexByKey.putIfAbsent(key, rows.size());
+      if (index == null) {
+        rows.add(row);
+      } else {
+        rows.set(index, row);
+      }
+    }
+
+    void reset() {
+      rows.clear();
+      rowIndexByKey.clear();
+      bytes = 0;
+    }
+  }
+}
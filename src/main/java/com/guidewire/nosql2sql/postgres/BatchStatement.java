@@ -0,0 +1,15 @@
+package com.guidewire.nosql2sql.postgres;
+
+/**
+ * Statement shapes used by {@link BatchRowWriter} to send a buffer of rows.
+ */
+public enum BatchStatement {
+  /**
+   * A single-row INSERT executed as a JDBC batch.
+   */
+  JDBC_BATCH,
+  /**
+   * One INSERT with a VALUES list holding every buffered row.
+   */
+  MULTI_ROW_VALUES
+}
@@ -1,21 +1,131 @@
 package com.guidewire.nosql2sql.postgres;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Types;
 import lombok.Getter;
 
 /**
  * Represents the data types that can be used for columns in the PostgreSQL database.
  * Each enum constant corresponds to a specific PostgreSQL data type.
+ * <p>
+ * Numbers get the narrowest type that holds them exactly: integers that fit in 64 bits are {@link #BIGINT}, binary
+ * floating point numbers {@link #DOUBLE}, and any other number {@link #NUMBER}. A column that receives numbers of
+ * different types is widened to {@link #NUMBER}.
  */
 @Getter
 public enum ColumnDataType {
-  STRING("varchar"),
-  NUMBER("numeric"),
-  BOOL("boolean"),
-  JSON("jsonb");
+  STRING("varchar", Types.VARCHAR, false),
+  BIGINT("bigint", Types.BIGINT, false),
+  DOUBLE("double precision", Types.DOUBLE, false),
+  NUMBER("numeric", Types.NUMERIC, false),
+  BOOL("boolean", Types.BOOLEAN, false),
+  BINARY("bytea", Types.BINARY, false),
+  // bound as text and cast in the statement
+  JSON("jsonb", Types.VARCHAR, true),
+  STRING_SET("varchar[]", Types.VARCHAR, true),
+  NUMBER_SET("numeric[]", Types.VARCHAR, true);
+
+  // integers up to 2^53 are exact in a double
+  private static final long MAX_EXACT_DOUBLE = 1L << 53;
+  private static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE);
+  private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
 
   private final String databaseType;
+  /**
+   * The {@link Types} constant used when binding values of this type.
+   */
+  private final int sqlType;
+  /**
+   * If true, values are bound as text and cast to the database type in the statement.
+   */
+  private final boolean boundAsText;
 
-  ColumnDataType(String databaseType) {
+  ColumnDataType(String databaseType, int sqlType, boolean boundAsText) {
     this.databaseType = databaseType;
+    this.sqlType = sqlType;
+    this.boundAsText = boundAsText;
+  }
+
+  /**
+   * @param value A number.
+   * @return The narrowest type that holds the number exactly.
+   */
+  public static ColumnDataType ofNumber(Number value) {
+    if (value instanceof Double || value instanceof Float) {
+      return DOUBLE;
+    }
+    if (value instanceof BigInteger integer) {
+      return integer.bitLength() < 64 ? BIGINT : NUMBER;
+    }
+    if (value instanceof BigDecimal decimal) {
+      return isLong(decimal) ? BIGINT : NUMBER;
+    }
+    return BIGINT;
+  }
+
+  private static boolean isLong(BigDecimal decimal) {
+    if (decimal.signum() == 0) {
+      return true;
+    }
+    // a cheap bound first, the integer part of larger decimals cannot fit in a long
+    if (decimal.precision() - decimal.scale() > 19) {
+      return false;
+    }
+    var stripped = decimal.stripTrailingZeros();
+    if (stripped.scale() > 0) {
+      return false;
+    }
+    var integer = stripped.toBigInteger();
+    return integer.compareTo(MIN_LONG) >= 0 && integer.compareTo(MAX_LONG) <= 0;
+  }
+
+  public boolean isNumber() {
+    return this == BIGINT || this == DOUBLE || this == NUMBER;
+  }
+
+  /**
+   * @return The placeholder of a value of this type in a statement.
+   */
+  public String placeholder() {
+    return boundAsText ? "?::" + databaseType : "?";
+  }
+
+  /**
+   * Checks whether a column of this type holds the value of an attribute without loss.
+   * @param attribute The attribute.
+   * @return true if the value can be written to the column as it is.
+   */
+  public boolean holds(ItemAttribute attribute) {
+    var type = attribute.type();
+    if (type == this) {
+      return true;
+    }
+    if (this == NUMBER) {
+      return type != null && type.isNumber();
+    }
+    if (this == DOUBLE && type == BIGINT) {
+      var value = ((Number) attribute.value()).longValue();
+      return value >= -MAX_EXACT_DOUBLE && value <= MAX_EXACT_DOUBLE;
+    }
+    return false;
+  }
+
+  /**
+   * Works out the type a column of this type must be changed to, to hold the value of an attribute.
+   * @param attribute The attribute.
+   * @return The wider type, or this type if the column holds the value or changing its type would not help. Values a
+   *     column cannot hold are written as null.
+   */
+  public ColumnDataType widenFor(ItemAttribute attribute) {
+    return holds(attribute) ? this : widen(attribute.type());
+  }
+
+  /**
+   * @param other The type of another column with the same name, such as one inferred from a different sample.
+   * @return The type holding the values of both columns, or this type if they do not have one.
+   */
+  public ColumnDataType widen(ColumnDataType other) {
+    return other != this && isNumber() && other != null && other.isNumber() ? NUMBER : this;
   }
-}
\ No newline at end of file
+}
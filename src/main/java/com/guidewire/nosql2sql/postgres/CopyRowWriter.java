@@ -0,0 +1,458 @@
+package com.guidewire.nosql2sql.postgres;
+
+import io.micrometer.core.instrument.Timer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * Buffers rows per table and bulk loads them into PostgreSQL with {@code COPY ... FROM STDIN}.
+ * Rows are encoded as they are appended, either in the text or the binary COPY format, and each table buffer is sent
+ * once it grows past {@link #FLUSH_THRESHOLD_BYTES} or when the set of mapped columns for the table changes.
+ * A writer holds a single connection and is not thread safe.
+ */
+@Slf4j
+public class CopyRowWriter implements RowWriter {
+
+  static final int FLUSH_THRESHOLD_BYTES = 8 * 1024 * 1024;
+
+  private static final byte[] BINARY_HEADER = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0, 0, 0, 0, 0, 0, 0, 0, 0};
+  private static final byte[] TEXT_NULL = "\\N".getBytes(StandardCharsets.UTF_8);
+  private static final int JSONB_VERSION = 1;
+  private static final int VARCHAR_OID = 1043;
+  private static final int NUMERIC_OID = 1700;
+  private static final int NUMERIC_NAN = 0xC000;
+  private static final int NUMERIC_PINF = 0xD000;
+  private static final int NUMERIC_NINF = 0xF000;
+  private static final String PARTITION_ROOT_SQL = "SELECT coalesce(pg_partition_root(to_regclass(?))::text, ?)";
+  private static final String NUMERIC_COLUMNS_SQL = "SELECT attname FROM pg_attribute WHERE attrelid = to_regclass(?)"
+      + " AND atttypid = 'numeric'::regtype AND attnum > 0 AND NOT attisdropped";
+
+  private final Connection connection;
+  private final CopyManager copyManager;
+  private final boolean binary;
+  private final RowWriter upsertWriter;
+  private final PipelineMetrics pipelineMetrics;
+  private final Timer statementTimer;
+  private final Map<String, TableBuffer> buffers = new HashMap<>();
+
+  /**
+   * Opens a new writer on a dedicated connection from the data source.
+   * @param dataSource The data source for the target PostgreSQL database.
+   * @param binary If true, rows are sent in the binary COPY format, otherwise in the text format.
+   * @param upsertWriter The writer used for upserts, which COPY cannot express.
+   * @param pipelineMetrics The meters rows and statements are recorded in.
+   */
+  public CopyRowWriter(DataSource dataSource, boolean binary, RowWriter upsertWriter, PipelineMetrics pipelineMetrics) {
+    try {
+      this.connection = dataSource.getConnection();
+      this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+    } catch (SQLException e) {
+      throw new IllegalStateException("Unable to open a COPY connection", e);
+    }
+    this.binary = binary;
+    this.upsertWriter = upsertWriter;
+    this.pipelineMetrics = pipelineMetrics;
+    this.statementTimer = pipelineMetrics.statementTimer("copy");
+  }
+
+  /**
+   * Appends a row to the buffer of its table. Mapped columns that are absent are written as NULL.
+   */
+  @Override
+  public void insert(TableMapping tableMapping, Map<String, Object> columns) {
+    var buffer = buffers.get(tableMapping.getTableName());
+    if (buffer != null && !buffer.matches(tableMapping)) {
+      // columns are only ever added or widened, so the column list or the encoding of the buffered rows is stale
+      flush(buffer);
+      buffer = null;
+    }
+    if (buffer == null) {
+      buffer = new TableBuffer(tableMapping);
+      buffers.put(tableMapping.getTableName(), buffer);
+    }
+
+    try {
+      if (binary) {
+        writeBinaryRow(buffer, columns);
+      } else {
+        writeTextRow(buffer, columns);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buffer.rows++;
+
+    if (buffer.bytes.size() >= FLUSH_THRESHOLD_BYTES) {
+      flush(buffer);
+    }
+  }
+
+  /**
+   * Sends the buffered rows of the table, then hands the row to the upsert writer.
+   */
+  @Override
+  public void upsert(TableMapping tableMapping, Map<String, Object> columns) {
+    flush(tableMapping.getTableName());
+    upsertWriter.upsert(tableMapping, columns);
+  }
+
+  @Override
+  public void flush(String tableName) {
+    var buffer = buffers.get(tableName);
+    if (buffer != null) {
+      flush(buffer);
+    }
+  }
+
+  @Override
+  public void flush() {
+    buffers.values().forEach(this::flush);
+  }
+
+  @Override
+  public void close() {
+    try {
+      flush();
+    } finally {
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        log.warn("Failed to close COPY connection", e);
+      }
+    }
+  }
+
+  private void flush(TableBuffer buffer) {
+    if (buffer.rows == 0) {
+      return;
+    }
+    var sql = "COPY " + buffer.tableName + " (" + String.join(",", buffer.columns) + ") FROM STDIN" + (binary ? " WITH (FORMAT binary)" : "");
+    log.debug("sql = {}", sql);
+    var start = System.nanoTime();
+    try {
+      var copied = binary && buffer.hasNarrowNumbers() ? copyWithCurrentTypes(buffer, sql) : copy(buffer, sql);
+      log.debug("Copied {} rows into {}", copied, buffer.tableName);
+      pipelineMetrics.rowsWritten(buffer.tableName, copied);
+    } catch (SQLException | IOException e) {
+      log.error("COPY failed for {} rows into {}", buffer.rows, buffer.tableName, e);
+      pipelineMetrics.rowsFailed(buffer.tableName, buffer.rows);
+      throw new IllegalStateException("COPY into " + buffer.tableName + " failed", e);
+    } finally {
+      statementTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      buffer.reset();
+    }
+  }
+
+  private long copy(TableBuffer buffer, String sql) throws SQLException, IOException {
+    if (binary) {
+      // file trailer
+      buffer.out.writeShort(-1);
+    }
+    return copyManager.copyIn(sql, new ByteArrayInputStream(buffer.bytes.toByteArray()));
+  }
+
+  /**
+   * Copies binary rows with bigint or double precision columns, which another writer may have widened to numeric
+   * since the rows were encoded. The table and its partitions are locked against schema changes while the current
+   * column types are read and the rows are sent, and values of widened columns are encoded again as numeric first.
+   */
+  private long copyWithCurrentTypes(TableBuffer buffer, String sql) throws SQLException, IOException {
+    connection.setAutoCommit(false);
+    try (var lock = connection.createStatement();
+        var root = connection.prepareStatement(PARTITION_ROOT_SQL);
+        var types = connection.prepareStatement(NUMERIC_COLUMNS_SQL)) {
+      // locking the root of the partition tree locks its partitions in the same order schema changes do
+      root.setString(1, buffer.tableName);
+      root.setString(2, buffer.tableName);
+      try (var rs = root.executeQuery()) {
+        rs.next();
+        lock.execute("LOCK TABLE " + rs.getString(1) + " IN ROW EXCLUSIVE MODE");
+      }
+      var numericColumns = new HashSet<String>();
+      types.setString(1, buffer.tableName);
+      try (var rs = types.executeQuery()) {
+        while (rs.next()) {
+          numericColumns.add(rs.getString(1));
+        }
+      }
+      buffer.widenTo(numericColumns);
+      var copied = copy(buffer, sql);
+      connection.commit();
+      return copied;
+    } catch (SQLException | IOException | RuntimeException e) {
+      connection.rollback();
+      throw e;
+    } finally {
+      connection.setAutoCommit(true);
+    }
+  }
+
+  private void writeTextRow(TableBuffer buffer, Map<String, Object> columns) throws IOException {
+    for (int i = 0; i < buffer.columns.size(); i++) {
+      if (i > 0) {
+        buffer.out.write('\t');
+      }
+      var value = columns.get(buffer.columns.get(i));
+      if (value == null) {
+        buffer.out.write(TEXT_NULL);
+      } else if (value instanceof Boolean bool) {
+        buffer.out.write(bool ? 't' : 'f');
+      } else if (value instanceof BigDecimal decimal) {
+        buffer.out.write(decimal.toPlainString().getBytes(StandardCharsets.UTF_8));
+      } else if (value instanceof byte[] bytes) {
+        // the hex format of bytea, with its backslash escaped for the text format
+        buffer.out.write(("\\\\x" + HexFormat.of().formatHex(bytes)).getBytes(StandardCharsets.UTF_8));
+      } else {
+        buffer.out.write(escapeText(value.toString()).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    buffer.out.write('\n');
+  }
+
+  private static String escapeText(String value) {
+    var sb = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      var c = value.charAt(i);
+      switch (c) {
+        case '\\' -> sb.append("\\\\");
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        case '\t' -> sb.append("\\t");
+        default -> sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private void writeBinaryRow(TableBuffer buffer, Map<String, Object> columns) throws IOException {
+    var out = buffer.out;
+    out.writeShort(buffer.columns.size());
+    for (int i = 0; i < buffer.columns.size(); i++) {
+      var value = columns.get(buffer.columns.get(i));
+      if (value == null) {
+        out.writeInt(-1);
+        continue;
+      }
+      switch (buffer.types.get(i)) {
+        case STRING -> writeBytes(out, value.toString().getBytes(StandardCharsets.UTF_8));
+        case BIGINT -> {
+          out.writeInt(8);
+          out.writeLong(((Number) value).longValue());
+        }
+        case DOUBLE -> {
+          out.writeInt(8);
+          out.writeDouble(((Number) value).doubleValue());
+        }
+        case NUMBER -> writeNumeric(out, (Number) value);
+        case BINARY -> writeBytes(out, (byte[]) value);
+        case STRING_SET, NUMBER_SET -> writeArray(out, (SetValue) value);
+        case BOOL -> {
+          out.writeInt(1);
+          out.writeByte(Boolean.TRUE.equals(value) ? 1 : 0);
+        }
+        case JSON -> {
+          var json = value.toString().getBytes(StandardCharsets.UTF_8);
+          out.writeInt(json.length + 1);
+          out.writeByte(JSONB_VERSION);
+          out.write(json);
+        }
+      }
+    }
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Writes a one dimensional array in the PostgreSQL binary representation: dimensions, null flag, element type, then
+   * the length and lower bound of the dimension followed by the elements.
+   */
+  private static void writeArray(DataOutputStream out, SetValue value) throws IOException {
+    var array = new ByteArrayOutputStream();
+    var arrayOut = new DataOutputStream(array);
+    var numbers = value.elementType() == ColumnDataType.NUMBER;
+    arrayOut.writeInt(value.elements().isEmpty() ? 0 : 1);
+    arrayOut.writeInt(0);
+    arrayOut.writeInt(numbers ? NUMERIC_OID : VARCHAR_OID);
+    if (!value.elements().isEmpty()) {
+      arrayOut.writeInt(value.elements().size());
+      arrayOut.writeInt(1);
+      for (var element : value.elements()) {
+        if (numbers) {
+          writeNumeric(arrayOut, (Number) element);
+        } else {
+          writeBytes(arrayOut, element.toString().getBytes(StandardCharsets.UTF_8));
+        }
+      }
+    }
+    arrayOut.flush();
+    writeBytes(out, array.toByteArray());
+  }
+
+  private static void writeNumeric(DataOutputStream out, Number value) throws IOException {
+    if (value instanceof BigDecimal decimal) {
+      writeNumeric(out, decimal);
+    } else if (value instanceof Double || value instanceof Float) {
+      var d = value.doubleValue();
+      if (Double.isNaN(d) || Double.isInfinite(d)) {
+        // special values have no digits, only a sign
+        out.writeInt(8);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(Double.isNaN(d) ? NUMERIC_NAN : d > 0 ? NUMERIC_PINF : NUMERIC_NINF);
+        out.writeShort(0);
+      } else {
+        writeNumeric(out, new BigDecimal(Double.toString(d)));
+      }
+    } else {
+      writeNumeric(out, new BigDecimal(value.toString()));
+    }
+  }
+
+  /**
+   * Writes a numeric in the PostgreSQL binary representation: digit count, weight, sign and display scale followed by
+   * the base 10000 digits.
+   */
+  private static void writeNumeric(DataOutputStream out, BigDecimal value) throws IOException {
+    var scale = Math.max(value.scale(), 0);
+    var digits = value.setScale(scale).unscaledValue().abs().toString();
+    if (digits.length() <= scale) {
+      digits = "0".repeat(scale - digits.length() + 1) + digits;
+    }
+    var integerLength = digits.length() - scale;
+    var padLeft = (4 - integerLength % 4) % 4;
+    var padRight = (4 - scale % 4) % 4;
+    var padded = "0".repeat(padLeft) + digits + "0".repeat(padRight);
+
+    var groups = new short[padded.length() / 4];
+    for (int i = 0; i < groups.length; i++) {
+      groups[i] = Short.parseShort(padded.substring(i * 4, i * 4 + 4));
+    }
+    var first = 0;
+    while (first < groups.length && groups[first] == 0) {
+      first++;
+    }
+    var last = groups.length - 1;
+    while (last >= first && groups[last] == 0) {
+      last--;
+    }
+    var count = first > last ? 0 : last - first + 1;
+    var weight = count == 0 ? 0 : (integerLength + padLeft) / 4 - 1 - first;
+
+    out.writeInt(8 + count * 2);
+    out.writeShort(count);
+    out.writeShort(weight);
+    out.writeShort(value.signum() < 0 ? 0x4000 : 0x0000);
+    out.writeShort(scale);
+    for (int i = 0; i < count; i++) {
+      out.writeShort(groups[first + i]);
+    }
+  }
+
+  private class TableBuffer {
+
+    private final String tableName;
+    private final List<String> columns;
+    private List<ColumnDataType> types;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private int rows;
+
+    TableBuffer(TableMapping tableMapping) {
+      this.tableName = tableMapping.getTableName();
+      this.columns = List.copyOf(tableMapping.getColumns().keySet());
+      this.types = columns.stream().map(c -> tableMapping.getColumn(c).getColumnType()).toList();
+      reset();
+    }
+
+    boolean matches(TableMapping tableMapping) {
+      if (columns.size() != tableMapping.getColumns().size()) {
+        return false;
+      }
+      var i = 0;
+      for (var column : tableMapping.getColumns().values()) {
+        if (column.getColumnType() != types.get(i++)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    boolean hasNarrowNumbers() {
+      return types.contains(ColumnDataType.BIGINT) || types.contains(ColumnDataType.DOUBLE);
+    }
+
+    /**
+     * Encodes the buffered values of bigint and double precision columns that are numeric in the table again.
+     * @param numericColumns The numeric columns of the table, in lower case.
+     */
+    void widenTo(Set<String> numericColumns) throws IOException {
+      var widened = new HashSet<Integer>();
+      for (int i = 0; i < columns.size(); i++) {
+        if ((types.get(i) == ColumnDataType.BIGINT || types.get(i) == ColumnDataType.DOUBLE) && numericColumns.contains(columns.get(i).toLowerCase())) {
+          widened.add(i);
+        }
+      }
+      if (widened.isEmpty()) {
+        return;
+      }
+      log.info("Encoding buffered values of widened columns of {} as numeric", tableName);
+      var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+      in.skipNBytes(BINARY_HEADER.length);
+      var encoded = new ByteArrayOutputStream(bytes.size());
+      var encodedOut = new DataOutputStream(encoded);
+      encodedOut.write(BINARY_HEADER);
+      for (int row = 0; row < rows; row++) {
+        var fields = in.readShort();
+        encodedOut.writeShort(fields);
+        for (int i = 0; i < fields; i++) {
+          var length = in.readInt();
+          if (length < 0) {
+            encodedOut.writeInt(length);
+          } else if (widened.contains(i)) {
+            writeNumeric(encodedOut, types.get(i) == ColumnDataType.BIGINT ? (Number) in.readLong() : (Number) in.readDouble());
+          } else {
+            encodedOut.writeInt(length);
+            encodedOut.write(in.readNBytes(length));
+          }
+        }
+      }
+      encodedOut.flush();
+      bytes.reset();
+      bytes.writeBytes(encoded.toByteArray());
+      var nextTypes = new ArrayList<>(types);
+      widened.forEach(i -> nextTypes.set(i, ColumnDataType.NUMBER));
+      types = List.copyOf(nextTypes);
+    }
+
+    void reset() {
+      bytes.reset();
+      rows = 0;
+      if (binary) {
+        bytes.writeBytes(BINARY_HEADER);
+      }
+    }
+  }
+}
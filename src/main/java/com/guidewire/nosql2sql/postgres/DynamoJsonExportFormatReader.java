@@ -0,0 +1,219 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.model.ExportFormat;
+
+/**
+ * Reads DynamoDB JSON export data files. Each line holds one item of the form {@code {"Item":{"attr":{"S":"value"}}}}.
+ * Items are decoded with the streaming Jackson parser, so no tree is built for the item itself. Nested maps and
+ * lists are unwrapped from their type descriptors into plain JSON, matching the shape of the Ion export.
+ */
+@Component
+@RequiredArgsConstructor
+public class DynamoJsonExportFormatReader implements ExportFormatReader {
+
+  private static final String ITEM_FIELD = "Item";
+  private static final String NEW_IMAGE_FIELD = "NewImage";
+  private static final String OLD_IMAGE_FIELD = "OldImage";
+  private static final String KEYS_FIELD = "Keys";
+
+  private final ObjectMapper objectMapper;
+  private final JsonNodeFactory nodeFactory = JsonNodeFactory.withExactBigDecimals(true);
+
+  @Override
+  public ExportFormat format() {
+    return ExportFormat.DYNAMODB_JSON;
+  }
+
+  @Override
+  public String dataFileSuffix() {
+    return ".json.gz";
+  }
+
+  @Override
+  public ItemReader open(InputStream inputStream) throws IOException {
+    var parser = objectMapper.getFactory().createParser(inputStream);
+    return new ItemReader() {
+      @Override
+      public Map<String, ItemAttribute> next() throws IOException {
+        return readItem(parser);
+      }
+
+      @Override
+      public void close() throws IOException {
+        parser.close();
+        inputStream.close();
+      }
+    };
+  }
+
+  @Override
+  public ChangeReader openChanges(InputStream inputStream) throws IOException {
+    var parser = objectMapper.getFactory().createParser(inputStream);
+    return new ChangeReader() {
+      @Override
+      public ItemChange next() throws IOException {
+        return readChange(parser);
+      }
+
+      @Override
+      public void close() throws IOException {
+        parser.close();
+        inputStream.close();
+      }
+    };
+  }
+
+  /**
+   * Reads a change record of an incremental export, of the form
+   * {@code {"Metadata":{...},"Keys":{...},"NewImage":{...},"OldImage":{...}}}.
+   */
+  private ItemChange readChange(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      return null;
+    }
+    Map<String, ItemAttribute> keys = null;
+    Map<String, ItemAttribute> newImage = null;
+    Map<String, ItemAttribute> oldImage = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var name = parser.currentName();
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        continue;
+      }
+      switch (name) {
+        case KEYS_FIELD -> keys = readAttributes(parser);
+        case NEW_IMAGE_FIELD -> newImage = readAttributes(parser);
+        case OLD_IMAGE_FIELD -> oldImage = readAttributes(parser);
+        default -> parser.skipChildren();
+      }
+    }
+    return ItemChange.of(keys, newImage, oldImage);
+  }
+
+  private Map<String, ItemAttribute> readItem(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      return null;
+    }
+    Map<String, ItemAttribute> item = Map.of();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var name = parser.currentName();
+      parser.nextToken();
+      if (ITEM_FIELD.equals(name)) {
+        item = readAttributes(parser);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return item;
+  }
+
+  private Map<String, ItemAttribute> readAttributes(JsonParser parser) throws IOException {
+    var attributes = new LinkedHashMap<String, ItemAttribute>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var name = parser.currentName();
+      parser.nextToken();
+      var attribute = readAttribute(parser);
+      if (attribute != null) {
+        attributes.put(name, attribute);
+      }
+    }
+    return attributes;
+  }
+
+  /**
+   * Reads a type descriptor such as {@code {"N":"1"}}. The parser is left on the end of the descriptor.
+   */
+  private ItemAttribute readAttribute(JsonParser parser) throws IOException {
+    parser.nextToken();
+    var type = parser.currentName();
+    parser.nextToken();
+    var attribute = switch (type) {
+      case "S" -> new ItemAttribute(ColumnDataType.STRING, parser.getText());
+      case "N" -> ItemAttribute.number(new BigDecimal(parser.getText()));
+      case "BOOL" -> new ItemAttribute(ColumnDataType.BOOL, parser.getBooleanValue());
+      case "B" -> new ItemAttribute(ColumnDataType.BINARY, Base64.getDecoder().decode(parser.getText()));
+      case "SS" -> new ItemAttribute(ColumnDataType.STRING_SET, readSet(parser, false));
+      case "NS" -> new ItemAttribute(ColumnDataType.NUMBER_SET, readSet(parser, true));
+      case "NULL" -> null;
+      case "M" -> new ItemAttribute(ColumnDataType.JSON, readValue(parser, type));
+      default -> ItemAttribute.unsupported(readValue(parser, type));
+    };
+    parser.nextToken();
+    return attribute;
+  }
+
+  private static List<Object> readSet(JsonParser parser, boolean numbers) throws IOException {
+    var elements = new ArrayList<>();
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      elements.add(numbers ? new BigDecimal(parser.getText()) : parser.getText());
+    }
+    return elements;
+  }
+
+  /**
+   * Reads the value of a type descriptor as plain JSON.
+   */
+  private JsonNode readValue(JsonParser parser, String type) throws IOException {
+    return switch (type) {
+      case "S", "B" -> nodeFactory.textNode(parser.getText());
+      case "N" -> nodeFactory.numberNode(new BigDecimal(parser.getText()));
+      case "BOOL" -> nodeFactory.booleanNode(parser.getBooleanValue());
+      case "NULL" -> nodeFactory.nullNode();
+      case "M" -> {
+        var node = nodeFactory.objectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          var name = parser.currentName();
+          parser.nextToken();
+          node.set(name, readDescriptor(parser));
+        }
+        yield node;
+      }
+      case "L" -> {
+        var node = nodeFactory.arrayNode();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          node.add(readDescriptor(parser));
+        }
+        yield node;
+      }
+      case "SS", "BS" -> {
+        var node = nodeFactory.arrayNode();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          node.add(parser.getText());
+        }
+        yield node;
+      }
+      case "NS" -> {
+        var node = nodeFactory.arrayNode();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          node.add(new BigDecimal(parser.getText()));
+        }
+        yield node;
+      }
+      default -> throw new IOException("Unknown DynamoDB type descriptor " + type);
+    };
+  }
+
+  private JsonNode readDescriptor(JsonParser parser) throws IOException {
+    parser.nextToken();
+    var type = parser.currentName();
+    parser.nextToken();
+    var value = readValue(parser, type);
+    parser.nextToken();
+    return value;
+  }
+}
@@ -0,0 +1,27 @@
+package com.guidewire.nosql2sql.postgres;
+
+import software.amazon.awssdk.services.dynamodb.model.ExportFormat;
+
+/**
+ * A single data file of a DynamoDB export.
+ * @param key The S3 key of the data file.
+ * @param format The format the data file was exported in.
+ * @param itemCount The number of items in the data file according to the export manifest, or -1 if unknown.
+ */
+public record ExportDataFile(String key, ExportFormat format, long itemCount) {
+
+  public static final long UNKNOWN_ITEM_COUNT = -1;
+
+  /**
+   * Creates a data file whose item count is unknown.
+   * @param key The S3 key of the data file.
+   * @param format The format the data file was exported in.
+   */
+  public ExportDataFile(String key, ExportFormat format) {
+    this(key, format, UNKNOWN_ITEM_COUNT);
+  }
+
+  public boolean hasItemCount() {
+    return itemCount != UNKNOWN_ITEM_COUNT;
+  }
+}
@@ -0,0 +1,107 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.model.ExportFormat;
+
+/**
+ * Finds the data files of the latest DynamoDB export under a prefix. The data files and their item counts are read
+ * from the manifests the export wrote next to its data, so files of older exports under the same prefix are never
+ * picked up. Exports without a manifest fall back to the data files of the most recently written export directory.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExportDiscovery {
+
+  static final String MANIFEST_SUMMARY = "manifest-summary.json";
+  private static final String DATA_DIRECTORY = "/data/";
+
+  private final ObjectMapper objectMapper;
+  private final List<ExportFormatReader> exportFormatReaders;
+
+  /**
+   * Lists the data files of the latest export under a prefix.
+   * @param source The source holding the export.
+   * @param prefix The prefix the export was written to.
+   * @return The export data files, largest first when their item counts are known.
+   */
+  public List<ExportDataFile> discover(ExportSource source, String prefix) {
+    var objects = source.list(prefix);
+    if (objects.isEmpty()) {
+      throw new IllegalArgumentException("No export provided in " + source.location() + " under " + prefix);
+    }
+    var dataFiles = objects.stream()
+        .filter(o -> o.key().endsWith(MANIFEST_SUMMARY))
+        .max(Comparator.comparing(ExportObject::lastModified))
+        .map(summary -> readManifest(source, summary.key()))
+        .orElseGet(() -> listDataFiles(objects));
+
+    var itemCount = dataFiles.stream().filter(ExportDataFile::hasItemCount).mapToLong(ExportDataFile::itemCount).sum();
+    log.info("Found {} export data files holding {} items", dataFiles.size(), itemCount);
+    return dataFiles.stream()
+        .sorted(Comparator.comparingLong(ExportDataFile::itemCount).reversed())
+        .toList();
+  }
+
+  private List<ExportDataFile> readManifest(ExportSource source, String summaryKey) {
+    try (var summaryStream = source.open(summaryKey, bytes -> {})) {
+      var summary = objectMapper.readTree(summaryStream);
+      var format = ExportFormat.fromValue(summary.path("outputFormat").asText(ExportFormat.ION.toString()));
+      var filesKey = summary.path("manifestFilesS3Key").asText(summaryKey.replace(MANIFEST_SUMMARY, "manifest-files.json"));
+      log.info("Reading export manifest {} of {} export with {} items", filesKey, format, summary.path("itemCount").asText("unknown"));
+
+      // manifest-files.json holds one JSON document per data file
+      try (var filesStream = source.open(filesKey, bytes -> {});
+          var lines = new BufferedReader(new InputStreamReader(filesStream, StandardCharsets.UTF_8))) {
+        return lines.lines()
+            .filter(line -> !line.isBlank())
+            .map(line -> {
+              try {
+                var entry = objectMapper.readTree(line);
+                return new ExportDataFile(entry.path("dataFileS3Key").asText(), format,
+                    entry.path("itemCount").asLong(ExportDataFile.UNKNOWN_ITEM_COUNT));
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            })
+            .toList();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private List<ExportDataFile> listDataFiles(List<ExportObject> objects) {
+    var reader = exportFormatReaders.stream()
+        .filter(r -> objects.stream().anyMatch(o -> o.key().endsWith(r.dataFileSuffix())))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("No export data files or manifest found"));
+    var dataObjects = objects.stream().filter(o -> o.key().endsWith(reader.dataFileSuffix())).toList();
+
+    // each export writes its data files into its own directory, only the most recent one is imported
+    var exports = dataObjects.stream().collect(Collectors.groupingBy(ExportDiscovery::exportDirectory));
+    var latest = exports.entrySet().stream()
+        .max(Comparator.comparing(e -> e.getValue().stream().map(ExportObject::lastModified).max(Comparator.naturalOrder()).orElseThrow()))
+        .orElseThrow();
+    log.warn("No export manifest found, importing the {} {} data files of {}", latest.getValue().size(), reader.format(), latest.getKey());
+    return latest.getValue().stream()
+        .map(o -> new ExportDataFile(o.key(), reader.format()))
+        .toList();
+  }
+
+  private static String exportDirectory(ExportObject object) {
+    var index = object.key().lastIndexOf(DATA_DIRECTORY);
+    return index < 0 ? "" : object.key().substring(0, index);
+  }
+}
@@ -0,0 +1,71 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.model.ExportFormat;
+
+/**
+ * Decodes the data files of a DynamoDB export in one particular format. Implementations are Spring beans, so support
+ * for another format is added by registering another reader.
+ */
+public interface ExportFormatReader {
+
+  /**
+   * @return The export format this reader decodes.
+   */
+  ExportFormat format();
+
+  /**
+   * @return The suffix of the S3 keys of data files in this format.
+   */
+  String dataFileSuffix();
+
+  /**
+   * Opens a streaming reader over an inflated data file.
+   * @param inputStream The inflated content of the data file.
+   * @return A reader returning one item at a time.
+   * @throws IOException if the data file cannot be opened
+   */
+  ItemReader open(InputStream inputStream) throws IOException;
+
+  /**
+   * Opens a streaming reader over an inflated data file of an incremental export.
+   * @param inputStream The inflated content of the data file.
+   * @return A reader returning one change at a time.
+   * @throws IOException if the data file cannot be opened
+   */
+  ChangeReader openChanges(InputStream inputStream) throws IOException;
+
+  /**
+   * Reads the items of a single data file, one at a time.
+   */
+  interface ItemReader extends AutoCloseable {
+
+    /**
+     * Reads the next item.
+     * @return The attributes of the next item, or null when there are no more items.
+     * @throws IOException if the data file cannot be read
+     */
+    Map<String, ItemAttribute> next() throws IOException;
+
+    @Override
+    void close() throws IOException;
+  }
+
+  /**
+   * Reads the change records of a single data file of an incremental export, one at a time.
+   */
+  interface ChangeReader extends AutoCloseable {
+
+    /**
+     * Reads the next change.
+     * @return The next change, or null when there are no more changes.
+     * @throws IOException if the data file cannot be read
+     */
+    ItemChange next() throws IOException;
+
+    @Override
+    void close() throws IOException;
+  }
+}
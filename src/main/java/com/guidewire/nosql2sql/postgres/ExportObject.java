@@ -0,0 +1,13 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.time.Instant;
+
+/**
+ * An object of an export source.
+ * @param key The key of the object, relative to the root of the source.
+ * @param size The size of the object in bytes.
+ * @param lastModified The time the object was last written.
+ */
+public record ExportObject(String key, long size, Instant lastModified) {
+
+}
@@ -0,0 +1,48 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Location that DynamoDB exports are read from, either an S3 bucket or a local directory holding a copy of the
+ * exports. Keys use '/' as separator in both.
+ */
+public interface ExportSource {
+
+  /**
+   * @return The location of the source, e.g. s3://bucket or file:///exports.
+   */
+  String location();
+
+  /**
+   * Lists every object whose key starts with a prefix.
+   * @param prefix The key prefix.
+   * @return The objects, in no particular order.
+   */
+  List<ExportObject> list(String prefix);
+
+  /**
+   * Opens an object for reading, as is.
+   * @param key The key of the object.
+   * @param bytesRead Called with the number of bytes of every read.
+   * @return The contents of the object. Closing the stream before its end releases the object without reading the rest.
+   * @throws IOException if the object cannot be opened.
+   */
+  InputStream open(String key, LongConsumer bytesRead) throws IOException;
+
+  /**
+   * Copies an object to a local file, as is.
+   * @param key The key of the object.
+   * @param target The local file to write, replaced if it exists.
+   * @param bytesRead Called with the number of bytes of every read.
+   */
+  void download(String key, Path target, LongConsumer bytesRead);
+
+  /**
+   * @return true if objects are read from the local file system, so that downloading them ahead gains nothing.
+   */
+  boolean isLocal();
+}
@@ -0,0 +1,42 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Resolves export locations to their {@link ExportSource}. A location is either {@code s3://bucket},
+ * {@code file:///directory}, or the name of an S3 bucket.
+ */
+@Component
+@RequiredArgsConstructor
+public class ExportSources {
+
+  private final S3Client s3Client;
+  private final RangedDownloader rangedDownloader;
+  private final PipelineMetrics pipelineMetrics;
+  private final Map<String, ExportSource> sources = new ConcurrentHashMap<>();
+
+  /**
+   * @param location The location of the exports.
+   * @return The source reading the exports.
+   */
+  public ExportSource resolve(String location) {
+    return sources.computeIfAbsent(location, this::create);
+  }
+
+  private ExportSource create(String location) {
+    if (location.startsWith("file:")) {
+      return new LocalExportSource(Path.of(URI.create(location)));
+    }
+    var bucketName = location.startsWith("s3://") ? location.substring("s3://".length()).replaceAll("/+$", "") : location;
+    if (bucketName.isBlank() || bucketName.contains("/")) {
+      throw new IllegalArgumentException("Invalid export location: " + location);
+    }
+    return new S3ExportSource(bucketName, s3Client, rangedDownloader, pipelineMetrics);
+  }
+}
@@ -0,0 +1,62 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persists, per DynamoDB table, the point in time up to which its exports have been requested, so that the next
+ * incremental export continues where the previous export ended.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExportState {
+
+  static final String TABLE_NAME = "nosql2sql_export_state";
+
+  private final JdbcClient jdbcClient;
+
+  /**
+   * Creates the export state table if it does not exist yet.
+   */
+  public void createTable() {
+    jdbcClient.sql("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+            + "table_name varchar PRIMARY KEY,"
+            + "exported_to timestamptz NOT NULL,"
+            + "updated_at timestamptz NOT NULL DEFAULT now())")
+        .update();
+  }
+
+  /**
+   * @param tableName The name of the DynamoDB table.
+   * @return The point in time the last export of the table ended at, empty if the table has never been exported.
+   */
+  public Optional<Instant> exportedTo(String tableName) {
+    createTable();
+    return jdbcClient.sql("SELECT exported_to FROM " + TABLE_NAME + " WHERE table_name = ?")
+        .param(tableName)
+        .query(Timestamp.class)
+        .optional()
+        .map(Timestamp::toInstant);
+  }
+
+  /**
+   * Records the point in time an export of a table ended at. Callers must only record exports whose changes have
+   * been applied, or will be applied by a full import.
+   * @param tableName The name of the DynamoDB table.
+   * @param exportedTo The export time of a full export, or the end of the window of an incremental export.
+   */
+  public void record(String tableName, Instant exportedTo) {
+    createTable();
+    log.info("Recording export of {} up to {}", tableName, exportedTo);
+    jdbcClient.sql("INSERT INTO " + TABLE_NAME + " (table_name, exported_to) VALUES (?, ?)"
+            + " ON CONFLICT (table_name) DO UPDATE SET exported_to = EXCLUDED.exported_to, updated_at = now()")
+        .params(tableName, Timestamp.from(exportedTo))
+        .update();
+  }
+}
@@ -0,0 +1,83 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persists the progress of an S3 import in PostgreSQL, so an interrupted import can be resumed. There is one row per
+ * export data file, holding the number of items of the file known to be committed and whether the whole file is.
+ * <p>
+ * The key of a data file starts with the directory of its export, so the checkpoints of an export are loaded and
+ * cleared by that directory, and an import never touches the progress of another export.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportCheckpoints {
+
+  static final String TABLE_NAME = "nosql2sql_import_checkpoint";
+
+  private final JdbcClient jdbcClient;
+
+  /**
+   * Creates the checkpoint table if it does not exist yet.
+   */
+  public void createTable() {
+    jdbcClient.sql("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+            + "data_file varchar PRIMARY KEY,"
+            + "items_committed bigint NOT NULL,"
+            + "completed boolean NOT NULL,"
+            + "updated_at timestamptz NOT NULL DEFAULT now())")
+        .update();
+  }
+
+  /**
+   * @param export The directory of the export, which the keys of its data files start with.
+   * @return The checkpoints of every data file of the export an import has started, keyed by the S3 key of the file.
+   */
+  public Map<String, Checkpoint> load(String export) {
+    return jdbcClient.sql("SELECT data_file, items_committed, completed FROM " + TABLE_NAME + " WHERE starts_with(data_file, ?)")
+        .param(export)
+        .query((rs, rowNum) -> new Checkpoint(rs.getString(1), rs.getLong(2), rs.getBoolean(3)))
+        .list()
+        .stream()
+        .collect(Collectors.toMap(Checkpoint::dataFile, checkpoint -> checkpoint));
+  }
+
+  /**
+   * Records the progress of an export data file. Callers must only record items once they have been flushed.
+   * @param dataFile The S3 key of the export data file.
+   * @param itemsCommitted The number of items at the start of the file that have been committed.
+   * @param completed True once every item of the file has been committed.
+   */
+  public void record(String dataFile, long itemsCommitted, boolean completed) {
+    jdbcClient.sql("INSERT INTO " + TABLE_NAME + " (data_file, items_committed, completed) VALUES (?, ?, ?)"
+            + " ON CONFLICT (data_file) DO UPDATE SET items_committed = EXCLUDED.items_committed,"
+            + " completed = EXCLUDED.completed, updated_at = now()")
+        .params(dataFile, itemsCommitted, completed)
+        .update();
+  }
+
+  /**
+   * Forgets the progress of an export, before a new import of it starts from the beginning.
+   * @param export The directory of the export, which the keys of its data files start with.
+   */
+  public void clear(String export) {
+    log.info("Clearing import checkpoints of {}", export);
+    jdbcClient.sql("DELETE FROM " + TABLE_NAME + " WHERE starts_with(data_file, ?)").param(export).update();
+  }
+
+  /**
+   * The progress of a single export data file.
+   * @param dataFile The S3 key of the export data file.
+   * @param itemsCommitted The number of items at the start of the file that have been committed.
+   * @param completed True once every item of the file has been committed.
+   */
+  public record Checkpoint(String dataFile, long itemsCommitted, boolean completed) {
+
+  }
+}
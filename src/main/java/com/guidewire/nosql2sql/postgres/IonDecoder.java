@@ -0,0 +1,16 @@
+package com.guidewire.nosql2sql.postgres;
+
+/**
+ * Strategies for decoding the items of an Ion export data file.
+ */
+public enum IonDecoder {
+  /**
+   * Items are decoded by walking the Ion reader directly into typed attributes.
+   */
+  DIRECT,
+  /**
+   * Items are written as JSON text, parsed into a Jackson tree and then converted into attributes.
+   * Slower than {@link #DIRECT}, kept for comparison.
+   */
+  JSON_TEXT
+}
@@ -0,0 +1,68 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.amazon.ion.system.IonSystemBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.model.ExportFormat;
+
+/**
+ * Reads Ion export data files. The Ion reader detects the binary version marker at the start of the stream, so data
+ * files may be either text or binary Ion. Binary Ion is noticeably cheaper to decode.
+ */
+@Component
+@RequiredArgsConstructor
+public class IonExportFormatReader implements ExportFormatReader {
+
+  private final MappingConfiguration mappingConfiguration;
+  private final ObjectMapper objectMapper;
+
+  @Override
+  public ExportFormat format() {
+    return ExportFormat.ION;
+  }
+
+  @Override
+  public String dataFileSuffix() {
+    return ".ion.gz";
+  }
+
+  @Override
+  public ItemReader open(InputStream inputStream) {
+    var reader = IonSystemBuilder.standard().getReaderBuilder().build(inputStream);
+    var decoder = new IonItemDecoder(mappingConfiguration.getImporter().getIonDecoder(), objectMapper);
+    return new ItemReader() {
+      @Override
+      public Map<String, ItemAttribute> next() throws IOException {
+        return reader.next() != null ? decoder.readItem(reader) : null;
+      }
+
+      @Override
+      public void close() throws IOException {
+        reader.close();
+        inputStream.close();
+      }
+    };
+  }
+
+  @Override
+  public ChangeReader openChanges(InputStream inputStream) {
+    var reader = IonSystemBuilder.standard().getReaderBuilder().build(inputStream);
+    var decoder = new IonItemDecoder(mappingConfiguration.getImporter().getIonDecoder(), objectMapper);
+    return new ChangeReader() {
+      @Override
+      public ItemChange next() throws IOException {
+        return reader.next() != null ? decoder.readChange(reader) : null;
+      }
+
+      @Override
+      public void close() throws IOException {
+        reader.close();
+        inputStream.close();
+      }
+    };
+  }
+}
@@ -0,0 +1,208 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.amazon.ion.IonReader;
+import com.amazon.ion.IonType;
+import com.amazon.ion.IntegerSize;
+import com.amazon.ion.system.IonTextWriterBuilder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decodes the items of a DynamoDB Ion export. Each top level value of an export data file is a struct of the form
+ * {@code {Item:{...}}}.
+ */
+public class IonItemDecoder {
+
+  private static final String ITEM_FIELD = "Item";
+  private static final String NEW_IMAGE_FIELD = "NewImage";
+  private static final String OLD_IMAGE_FIELD = "OldImage";
+  private static final String KEYS_FIELD = "Keys";
+  private static final String STRING_SET_ANNOTATION = "$dynamodb_SS";
+  private static final String NUMBER_SET_ANNOTATION = "$dynamodb_NS";
+
+  private final IonDecoder ionDecoder;
+  private final ObjectMapper objectMapper;
+  private final JsonNodeFactory nodeFactory = JsonNodeFactory.withExactBigDecimals(true);
+
+  /**
+   * Creates a new decoder.
+   * @param ionDecoder The decoding strategy.
+   * @param objectMapper The object mapper used by {@link IonDecoder#JSON_TEXT}.
+   */
+  public IonItemDecoder(IonDecoder ionDecoder, ObjectMapper objectMapper) {
+    this.ionDecoder = ionDecoder;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Decodes the item the reader is positioned on.
+   * @param reader A reader positioned on a top level value of an export data file.
+   * @return The attributes of the item.
+   * @throws IOException if the value cannot be read
+   */
+  public Map<String, ItemAttribute> readItem(IonReader reader) throws IOException {
+    return switch (ionDecoder) {
+      case DIRECT -> readItemDirect(reader);
+      case JSON_TEXT -> readItemAsJsonText(reader);
+    };
+  }
+
+  /**
+   * Decodes the change record of an incremental export the reader is positioned on. Change records are structs of
+   * the form {@code {Metadata:{...},Keys:{...},NewImage:{...},OldImage:{...}}}, where removed items have no new image.
+   * @param reader A reader positioned on a top level value of an incremental export data file.
+   * @return The change.
+   * @throws IOException if the value cannot be read
+   */
+  public ItemChange readChange(IonReader reader) throws IOException {
+    Map<String, ItemAttribute> keys = null;
+    Map<String, ItemAttribute> newImage = null;
+    Map<String, ItemAttribute> oldImage = null;
+    if (ionDecoder == IonDecoder.JSON_TEXT) {
+      var record = readAsJsonText(reader);
+      keys = record.hasNonNull(KEYS_FIELD) ? ItemAttribute.itemFromJson(record.get(KEYS_FIELD)) : null;
+      newImage = record.hasNonNull(NEW_IMAGE_FIELD) ? ItemAttribute.itemFromJson(record.get(NEW_IMAGE_FIELD)) : null;
+      oldImage = record.hasNonNull(OLD_IMAGE_FIELD) ? ItemAttribute.itemFromJson(record.get(OLD_IMAGE_FIELD)) : null;
+    } else {
+      reader.stepIn();
+      IonType type;
+      while ((type = reader.next()) != null) {
+        if (type == IonType.STRUCT && !reader.isNullValue()) {
+          switch (reader.getFieldName()) {
+            case KEYS_FIELD -> keys = readAttributes(reader);
+            case NEW_IMAGE_FIELD -> newImage = readAttributes(reader);
+            case OLD_IMAGE_FIELD -> oldImage = readAttributes(reader);
+            default -> {
+            }
+          }
+        }
+      }
+      reader.stepOut();
+    }
+    return ItemChange.of(keys, newImage, oldImage);
+  }
+
+  private Map<String, ItemAttribute> readItemAsJsonText(IonReader reader) throws IOException {
+    return ItemAttribute.itemFromJson(readAsJsonText(reader).get(ITEM_FIELD));
+  }
+
+  private JsonNode readAsJsonText(IonReader reader) throws IOException {
+    var sb = new StringBuilder();
+    try (var writer = IonTextWriterBuilder.json().build(sb)) {
+      writer.writeValue(reader);
+    }
+    // decimals are kept exact, as they are by the direct decoder
+    return objectMapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS).readTree(sb.toString());
+  }
+
+  private Map<String, ItemAttribute> readItemDirect(IonReader reader) {
+    Map<String, ItemAttribute> item = Map.of();
+    reader.stepIn();
+    IonType type;
+    while ((type = reader.next()) != null) {
+      if (type == IonType.STRUCT && ITEM_FIELD.equals(reader.getFieldName())) {
+        item = readAttributes(reader);
+      }
+    }
+    reader.stepOut();
+    return item;
+  }
+
+  private Map<String, ItemAttribute> readAttributes(IonReader reader) {
+    var attributes = new LinkedHashMap<String, ItemAttribute>();
+    reader.stepIn();
+    IonType type;
+    while ((type = reader.next()) != null) {
+      if (!reader.isNullValue()) {
+        attributes.put(reader.getFieldName(), readAttribute(reader, type));
+      }
+    }
+    reader.stepOut();
+    return attributes;
+  }
+
+  private ItemAttribute readAttribute(IonReader reader, IonType type) {
+    return switch (type) {
+      case STRING, SYMBOL -> new ItemAttribute(ColumnDataType.STRING, reader.stringValue());
+      case BOOL -> new ItemAttribute(ColumnDataType.BOOL, reader.booleanValue());
+      case INT -> ItemAttribute.number(reader.getIntegerSize() == IntegerSize.BIG_INTEGER ? reader.bigIntegerValue() : reader.longValue());
+      case DECIMAL -> ItemAttribute.number(reader.bigDecimalValue());
+      case FLOAT -> ItemAttribute.number(reader.doubleValue());
+      case BLOB -> new ItemAttribute(ColumnDataType.BINARY, reader.newBytes());
+      case STRUCT -> new ItemAttribute(ColumnDataType.JSON, readJson(reader, type));
+      case LIST -> readList(reader, type);
+      default -> ItemAttribute.unsupported(readJson(reader, type));
+    };
+  }
+
+  // string and number sets are lists annotated with their DynamoDB type, other lists are not supported as columns
+  private ItemAttribute readList(IonReader reader, IonType type) {
+    var annotations = Arrays.asList(reader.getTypeAnnotations());
+    var numbers = annotations.contains(NUMBER_SET_ANNOTATION);
+    if (!numbers && !annotations.contains(STRING_SET_ANNOTATION)) {
+      return ItemAttribute.unsupported(readJson(reader, type));
+    }
+    var elements = new ArrayList<>();
+    reader.stepIn();
+    IonType element;
+    while ((element = reader.next()) != null) {
+      if (!reader.isNullValue()) {
+        elements.add(numbers ? readDecimal(reader, element) : reader.stringValue());
+      }
+    }
+    reader.stepOut();
+    return new ItemAttribute(numbers ? ColumnDataType.NUMBER_SET : ColumnDataType.STRING_SET, elements);
+  }
+
+  private static BigDecimal readDecimal(IonReader reader, IonType type) {
+    return switch (type) {
+      case INT -> new BigDecimal(reader.bigIntegerValue());
+      case FLOAT -> BigDecimal.valueOf(reader.doubleValue());
+      default -> reader.bigDecimalValue();
+    };
+  }
+
+  private JsonNode readJson(IonReader reader, IonType type) {
+    if (reader.isNullValue()) {
+      return nodeFactory.nullNode();
+    }
+    return switch (type) {
+      case STRUCT -> {
+        var node = nodeFactory.objectNode();
+        reader.stepIn();
+        IonType child;
+        while ((child = reader.next()) != null) {
+          node.set(reader.getFieldName(), readJson(reader, child));
+        }
+        reader.stepOut();
+        yield node;
+      }
+      case LIST, SEXP -> {
+        var node = nodeFactory.arrayNode();
+        reader.stepIn();
+        IonType child;
+        while ((child = reader.next()) != null) {
+          node.add(readJson(reader, child));
+        }
+        reader.stepOut();
+        yield node;
+      }
+      case STRING, SYMBOL -> nodeFactory.textNode(reader.stringValue());
+      case BOOL -> nodeFactory.booleanNode(reader.booleanValue());
+      case INT -> reader.getIntegerSize() == IntegerSize.BIG_INTEGER ? nodeFactory.numberNode(reader.bigIntegerValue()) : nodeFactory.numberNode(reader.longValue());
+      case DECIMAL -> nodeFactory.numberNode(reader.bigDecimalValue());
+      case FLOAT -> nodeFactory.numberNode(reader.doubleValue());
+      case BLOB, CLOB -> nodeFactory.binaryNode(reader.newBytes());
+      case TIMESTAMP -> nodeFactory.textNode(reader.timestampValue().toString());
+      default -> nodeFactory.nullNode();
+    };
+  }
+}
@@ -0,0 +1,87 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single attribute of a DynamoDB item, decoded into the type of the column it maps to.
+ * Scalars hold their Java value, binaries a byte array, sets a list of their elements and nested documents a
+ * {@link JsonNode}. Attributes that cannot be mapped to a column have no type.
+ * @param type The column data type of the attribute, or null if the attribute is not supported.
+ * @param value The decoded value.
+ */
+public record ItemAttribute(ColumnDataType type, Object value) {
+
+  /**
+   * Creates an attribute that cannot be mapped to a column.
+   * @param value The decoded value.
+   * @return The unsupported attribute.
+   */
+  public static ItemAttribute unsupported(Object value) {
+    return new ItemAttribute(null, value);
+  }
+
+  /**
+   * Creates a number attribute, typed with the narrowest column type that holds the number exactly.
+   * @param value The number.
+   * @return The attribute.
+   */
+  public static ItemAttribute number(Number value) {
+    return new ItemAttribute(ColumnDataType.ofNumber(value), value);
+  }
+
+  /**
+   * Converts an item in JSON format into its attributes. Null attributes are skipped.
+   * @param jsonNode The item in JSON format.
+   * @return The attributes of the item, in the order of the JSON fields.
+   */
+  public static Map<String, ItemAttribute> itemFromJson(JsonNode jsonNode) {
+    var item = new LinkedHashMap<String, ItemAttribute>();
+    jsonNode.fields().forEachRemaining(field -> {
+      if (!field.getValue().isNull()) {
+        item.put(field.getKey(), of(field.getValue()));
+      }
+    });
+    return item;
+  }
+
+  /**
+   * Converts a single JSON value into an attribute. JSON does not tell decimals from binary floats, and Jackson parses
+   * decimals as doubles by default, so numbers with a fraction are read as decimals and typed as exact numbers.
+   * @param value The JSON value.
+   * @return The attribute.
+   * @throws IllegalArgumentException if the JSON node type is unsupported
+   */
+  public static ItemAttribute of(JsonNode value) {
+    return switch (value.getNodeType()) {
+      case BOOLEAN -> new ItemAttribute(ColumnDataType.BOOL, value.booleanValue());
+      case NUMBER -> number(value.isFloatingPointNumber() ? value.decimalValue() : value.numberValue());
+      case STRING -> new ItemAttribute(ColumnDataType.STRING, value.textValue());
+      case OBJECT -> new ItemAttribute(ColumnDataType.JSON, value);
+      case BINARY -> new ItemAttribute(ColumnDataType.BINARY, ((BinaryNode) value).binaryValue());
+      case ARRAY -> unsupported(value);
+      default -> throw new IllegalArgumentException("Unsupported type " + value.getNodeType());
+    };
+  }
+
+  public boolean isSupported() {
+    return type != null;
+  }
+
+  /**
+   * Renders the value as JSON text, suitable for a jsonb column.
+   * @return The JSON text of the value.
+   */
+  public String toJson() {
+    if (value instanceof JsonNode node) {
+      return node.toString();
+    }
+    if (value instanceof String string) {
+      return TextNode.valueOf(string).toString();
+    }
+    return String.valueOf(value);
+  }
+}
@@ -0,0 +1,32 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.guidewire.nosql2sql.postgres.PostgresManager.ApplyType;
+import java.util.Map;
+
+/**
+ * A change record of an incremental export.
+ * @param item The new image of a new or updated item, or the old image of a deleted item. Deleted items fall back to
+ * their keys if the export has no old images.
+ * @param applyType How the change is applied, {@link ApplyType#UPDATE} or {@link ApplyType#DELETE}.
+ */
+public record ItemChange(Map<String, ItemAttribute> item, ApplyType applyType) {
+
+  /**
+   * Creates the change described by the images of a change record.
+   * @param keys The key attributes of the item.
+   * @param newImage The item after the change, null if it was removed.
+   * @param oldImage The item before the change, null if it was created or the export has no old images.
+   * @return The change.
+   */
+  public static ItemChange of(Map<String, ItemAttribute> keys, Map<String, ItemAttribute> newImage, Map<String, ItemAttribute> oldImage) {
+    if (newImage != null) {
+      return new ItemChange(newImage, ApplyType.UPDATE);
+    }
+    // the old image also holds the attribute the target table is derived from, the keys alone may not
+    var removed = oldImage != null ? oldImage : keys;
+    if (removed == null) {
+      throw new IllegalArgumentException("Change record has neither a new image, an old image nor keys");
+    }
+    return new ItemChange(removed, ApplyType.DELETE);
+  }
+}
@@ -0,0 +1,134 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Splits nested maps and lists of an item into rows of child tables, when child tables are enabled.
+ * <p>
+ * The attribute {@code addresses} of an item of table {@code customer} is written to {@code customer_addresses}, one
+ * row per list element, or a single row for a map. Fields of map elements become columns, other elements are written
+ * to a {@code value} column. Child rows carry the key of the item and their position in the list as {@code ordinal}.
+ * Rows nested further carry the ordinals of their ancestors as {@code ordinal_1}, {@code ordinal_2} and so on, so a
+ * child joins its parent on the key of the item and {@code ordinal_<depth of the parent>} = {@code ordinal}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ItemNormalizer {
+
+  static final String ORDINAL = "ordinal";
+  static final String VALUE = "value";
+
+  private final MappingConfiguration mappingConfiguration;
+
+  /**
+   * @param item The attributes of the item.
+   * @param keyColumns The key attributes of the item.
+   * @return The row of the item itself and the rows of its child tables. Items are returned as they are if child
+   *     tables are disabled or the item lacks a key attribute.
+   */
+  public NormalizedItem normalize(Map<String, ItemAttribute> item, List<String> keyColumns) {
+    var config = mappingConfiguration.getPostgresql().getChildTables();
+    if (!config.isEnabled() || !item.keySet().containsAll(keyColumns)) {
+      return new NormalizedItem(item, List.of());
+    }
+    var keys = new LinkedHashMap<String, ItemAttribute>();
+    keyColumns.forEach(column -> keys.put(column, item.get(column)));
+    var children = new ArrayList<ChildRow>();
+    var row = split(item, "", keys, 0, config, children);
+    return new NormalizedItem(row, children);
+  }
+
+  private Map<String, ItemAttribute> split(Map<String, ItemAttribute> attributes, String path, Map<String, ItemAttribute> keys, int depth,
+      MappingConfiguration.ChildTables config, List<ChildRow> children) {
+    var row = new LinkedHashMap<String, ItemAttribute>();
+    attributes.forEach((name, attribute) -> {
+      var elements = depth < config.getMaxDepth() && !keys.containsKey(name) ? elementsOf(attribute, config.getMaxFanOut()) : null;
+      if (elements == null) {
+        // lists that are not written to a child table are kept as a jsonb column rather than dropped
+        row.put(name, attribute.value() instanceof JsonNode node && !attribute.isSupported() ? new ItemAttribute(ColumnDataType.JSON, node) : attribute);
+        return;
+      }
+      // $ is left to the names of partitions
+      var childPath = path + "_" + TableMapperManager.escapeTableName(name).replace('$', '_');
+      for (var ordinal = 0; ordinal < elements.size(); ordinal++) {
+        var childKeys = childKeys(keys, depth, ordinal);
+        var element = split(fieldsOf(elements.get(ordinal)), childPath, childKeys, depth + 1, config, children);
+        var childRow = new LinkedHashMap<>(childKeys);
+        // fields named like a key column are dropped, the key identifies the row
+        element.forEach(childRow::putIfAbsent);
+        children.add(new ChildRow(childPath, childRow, List.copyOf(childKeys.keySet())));
+      }
+    });
+    return row;
+  }
+
+  // a row at depth d has its own ordinal and the ordinals of its ancestors as ordinal_1 to ordinal_(d - 1)
+  private static Map<String, ItemAttribute> childKeys(Map<String, ItemAttribute> keys, int depth, int ordinal) {
+    var childKeys = new LinkedHashMap<>(keys);
+    var parentOrdinal = childKeys.remove(ORDINAL);
+    if (parentOrdinal != null) {
+      childKeys.put(ORDINAL + "_" + depth, parentOrdinal);
+    }
+    childKeys.put(ORDINAL, ItemAttribute.number((long) ordinal));
+    return childKeys;
+  }
+
+  private static List<JsonNode> elementsOf(ItemAttribute attribute, int maxFanOut) {
+    if (!(attribute.value() instanceof JsonNode node)) {
+      return null;
+    }
+    if (node.isObject()) {
+      return List.of(node);
+    }
+    if (node.isArray() && node.size() <= maxFanOut) {
+      var elements = new ArrayList<JsonNode>(node.size());
+      node.elements().forEachRemaining(elements::add);
+      return elements;
+    }
+    return null;
+  }
+
+  private static Map<String, ItemAttribute> fieldsOf(JsonNode element) {
+    var fields = new LinkedHashMap<String, ItemAttribute>();
+    if (element.isObject()) {
+      element.fields().forEachRemaining(field -> {
+        if (!field.getValue().isNull()) {
+          fields.put(field.getKey(), attributeOf(field.getValue()));
+        }
+      });
+    } else if (!element.isNull()) {
+      fields.put(VALUE, attributeOf(element));
+    }
+    return fields;
+  }
+
+  private static ItemAttribute attributeOf(JsonNode value) {
+    return value.isValueNode() && !value.isBoolean() && !value.isNumber() && !value.isTextual() && !value.isBinary()
+        ? new ItemAttribute(ColumnDataType.STRING, value.asText())
+        : ItemAttribute.of(value);
+  }
+
+  /**
+   * An item split into its own row and the rows of its child tables.
+   * @param row The attributes written to the table of the item.
+   * @param children The rows of child tables.
+   */
+  public record NormalizedItem(Map<String, ItemAttribute> row, List<ChildRow> children) {
+  }
+
+  /**
+   * A row of a child table.
+   * @param tableSuffix Appended to the name of the table of the item to name the child table, such as
+   *     {@code _addresses}.
+   * @param row The attributes of the row, key columns first.
+   * @param keyColumns The primary key of the child table.
+   */
+  public record ChildRow(String tableSuffix, Map<String, ItemAttribute> row, List<String> keyColumns) {
+  }
+}
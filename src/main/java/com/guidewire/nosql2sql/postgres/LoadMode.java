@@ -0,0 +1,23 @@
+package com.guidewire.nosql2sql.postgres;
+
+/**
+ * Strategies for writing rows into PostgreSQL during an import.
+ */
+public enum LoadMode {
+  /**
+   * Each row is written with its own INSERT statement.
+   */
+  INSERT,
+  /**
+   * Rows are buffered per table and column set, and inserted as a JDBC batch or a multi-row VALUES statement.
+   */
+  BATCH,
+  /**
+   * Rows are streamed into each table with {@code COPY ... FROM STDIN} using the text format.
+   */
+  COPY_TEXT,
+  /**
+   * Rows are streamed into each table with {@code COPY ... FROM STDIN} using the binary format.
+   */
+  COPY_BINARY
+}
@@ -0,0 +1,162 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads exports copied to a local directory, laid out as in the bucket. Data files are read through memory-mapped
+ * channels, so they are inflated straight from the page cache without copying them through a read buffer first.
+ */
+class LocalExportSource implements ExportSource {
+
+  /**
+   * Size of the region of a file that is mapped at a time. Mapped regions are limited to 2 GB.
+   */
+  private static final long MAPPED_REGION_SIZE = 256L * 1024 * 1024;
+
+  private final Path root;
+
+  LocalExportSource(Path root) {
+    this.root = root.toAbsolutePath().normalize();
+  }
+
+  @Override
+  public String location() {
+    return root.toUri().toString();
+  }
+
+  @Override
+  public List<ExportObject> list(String prefix) {
+    if (!Files.isDirectory(root)) {
+      return List.of();
+    }
+    try (var files = Files.walk(root)) {
+      return files.filter(Files::isRegularFile)
+          .map(file -> {
+            try {
+              return new ExportObject(keyOf(file), Files.size(file), Files.getLastModifiedTime(file).toInstant());
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          })
+          .filter(o -> o.key().startsWith(prefix))
+          .toList();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private String keyOf(Path file) {
+    var relative = root.relativize(file);
+    return StreamSupport.stream(relative.spliterator(), false)
+        .map(Path::toString)
+        .collect(Collectors.joining("/"));
+  }
+
+  @Override
+  public InputStream open(String key, LongConsumer bytesRead) throws IOException {
+    return new MappedFileInputStream(FileChannel.open(resolve(key)), bytesRead);
+  }
+
+  @Override
+  public void download(String key, Path target, LongConsumer bytesRead) {
+    try {
+      Files.copy(resolve(key), target, StandardCopyOption.REPLACE_EXISTING);
+      bytesRead.accept(Files.size(target));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public boolean isLocal() {
+    return true;
+  }
+
+  private Path resolve(String key) {
+    var file = root.resolve(key).normalize();
+    if (!file.startsWith(root)) {
+      throw new IllegalArgumentException("Key " + key + " is outside of " + root);
+    }
+    return file;
+  }
+
+  /**
+   * Reads a file through successive memory-mapped regions.
+   */
+  private static class MappedFileInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final LongConsumer bytesRead;
+    private final long size;
+    private long regionStart;
+    private MappedByteBuffer region;
+
+    MappedFileInputStream(FileChannel channel, LongConsumer bytesRead) throws IOException {
+      this.channel = channel;
+      this.bytesRead = bytesRead;
+      this.size = channel.size();
+    }
+
+    /**
+     * @return false at the end of the file.
+     */
+    private boolean ensureRegion() throws IOException {
+      if (region != null && region.hasRemaining()) {
+        return true;
+      }
+      var next = region == null ? 0 : regionStart + region.capacity();
+      if (next >= size) {
+        return false;
+      }
+      regionStart = next;
+      region = channel.map(MapMode.READ_ONLY, regionStart, Math.min(MAPPED_REGION_SIZE, size - regionStart));
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!ensureRegion()) {
+        return -1;
+      }
+      bytesRead.accept(1);
+      return region.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (!ensureRegion()) {
+        return -1;
+      }
+      var read = Math.min(length, region.remaining());
+      region.get(buffer, offset, read);
+      bytesRead.accept(read);
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return region == null ? 0 : region.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+      region = null;
+      channel.close();
+    }
+  }
+}
@@ -1,7 +1,11 @@
 package com.guidewire.nosql2sql.postgres;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
 import lombok.Data;
+import software.amazon.awssdk.services.dynamodb.model.ExportFormat;
+import org.springframework.util.unit.DataSize;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -17,6 +21,8 @@ public class MappingConfiguration {
   private Postgresql postgresql;
   private Dynamodb dynamodb;
   private S3 s3;
+  private Importer importer = new Importer();
+  private Sync sync = new Sync();
 
   /**
    * Discriminator used to identify different record types. Each record type will be imported into a different table in PostgreSQL.
@@ -62,6 +68,147 @@ public class MappingConfiguration {
      * If true, the tables in PostgreSQL will be recreated.
      */
     private boolean recreateTables = false;
+    /**
+     * Default strategy used to write rows during an import. May be overridden for a single import.
+     */
+    private LoadMode loadMode = LoadMode.INSERT;
+    /**
+     * Number of hash partitions new tables are created with, partitioned by their DynamoDB partition key. 0 creates
+     * plain tables.
+     */
+    private int partitions = 0;
+    /**
+     * Settings for the batching writer used by the BATCH load mode and by records received on /api/syncData
+     */
+    private Batch batch = new Batch();
+    /**
+     * Settings for writing nested maps and lists to child tables
+     */
+    private ChildTables childTables = new ChildTables();
+
+  }
+
+  @Data
+  public static class ChildTables {
+
+    /**
+     * If true, nested maps and the elements of lists are written to child tables named after the table and attribute,
+     * instead of a single jsonb column
+     */
+    private boolean enabled = false;
+    /**
+     * Number of levels of nesting written to child tables. Values nested deeper are kept as jsonb columns.
+     */
+    private int maxDepth = 2;
+    /**
+     * Lists with more elements than this are kept as a jsonb column instead of being written to a child table
+     */
+    private int maxFanOut = 100;
+  }
+
+  @Data
+  public static class Batch {
+
+    /**
+     * Number of rows buffered for a table and column set before they are inserted
+     */
+    private int maxRows = 1000;
+    /**
+     * Estimated size in bytes of the rows buffered for a table and column set before they are inserted
+     */
+    private long maxBytes = 4L * 1024 * 1024;
+    /**
+     * Maximum time a buffered row waits before it is inserted
+     */
+    private Duration maxLatency = Duration.ofSeconds(1);
+    /**
+     * Statement used to insert a buffer of rows
+     */
+    private BatchStatement statement = BatchStatement.JDBC_BATCH;
+    /**
+     * If true, rows received on /api/syncData are batched. Otherwise each row is inserted on its own.
+     */
+    private boolean syncEnabled = true;
+
+  }
+
+  @Data
+  public static class Importer {
+
+    /**
+     * Number of export data files imported in parallel. Each worker may hold a database connection, so this should
+     * stay below the size of the connection pool.
+     */
+    private int workers = 4;
+    /**
+     * Location of the exports to import, either s3://bucket or file:///directory for a local copy of the exports
+     * laid out as in the bucket. Defaults to the configured S3 bucket.
+     */
+    private String exportLocation;
+    /**
+     * Strategy used to decode the items of Ion export data files
+     */
+    private IonDecoder ionDecoder = IonDecoder.DIRECT;
+    /**
+     * If true, a sample of the export is read before loading so that every table is created with its full column set
+     * up front, instead of adding columns while rows are being written.
+     */
+    private boolean inferSchema = false;
+    /**
+     * Number of items read from each export data file when inferring the schema. 0 reads every item.
+     */
+    private long inferenceSampleSize = 10000;
+    /**
+     * If true, each table is loaded into an unlogged staging table without keys, which is indexed, made durable and
+     * swapped in for the live table once the whole export has been loaded. Readers keep seeing the previous data
+     * during the import, and recreate-tables does not apply.
+     */
+    private boolean staged = false;
+    /**
+     * Number of items of an export data file written between two checkpoints. A resumed import repeats at most this
+     * many items of each partially imported file.
+     */
+    private long checkpointInterval = 100000;
+    /**
+     * Number of export data files downloaded into the spool directory ahead of the files being imported, so that
+     * downloads overlap with decoding and writing. 0 streams every file straight from S3.
+     */
+    private int prefetch = 2;
+    /**
+     * Directory holding prefetched export data files until they have been imported. Defaults to the temp directory.
+     */
+    private Path spoolDirectory;
+    /**
+     * Number of decoded items buffered between the thread decoding an export data file and the worker writing its
+     * rows. 0 decodes on the worker thread.
+     */
+    private int decodeBuffer = 1000;
+
+  }
+
+  @Data
+  public static class Sync {
+
+    /**
+     * Number of worker lanes applying records received on /api/syncData. Records are routed to a lane by their key,
+     * so changes to the same item are applied in order while different items are applied in parallel.
+     */
+    private int lanes = 4;
+    /**
+     * Number of received records that may wait to be applied. Requests that would exceed it are rejected with
+     * 429 Too Many Requests.
+     */
+    private int queueCapacity = 10000;
+    /**
+     * Delay suggested to callers in the Retry-After header when a request is rejected
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+    /**
+     * Time records of the same item are collected on a lane before they are applied. Only the latest image of each
+     * item is written, and an item inserted and removed within the window is not written at all. 0 applies every
+     * record as it arrives.
+     */
+    private Duration coalesceWindow = Duration.ZERO;
 
   }
 
@@ -76,6 +223,22 @@ public class MappingConfiguration {
      * Optional prefix within the S3 bucket
      */
     private Optional<String> prefix;
+    /**
+     * Size of the buffer used to stream and inflate each export data file
+     */
+    private DataSize readBufferSize = DataSize.ofKilobytes(64);
+    /**
+     * Prefetched export data files of at least this size are downloaded as concurrent ranged GETs
+     */
+    private DataSize rangedDownloadThreshold = DataSize.ofMegabytes(256);
+    /**
+     * Size of each range of a ranged download
+     */
+    private DataSize rangeSize = DataSize.ofMegabytes(64);
+    /**
+     * Number of ranges downloaded concurrently, shared by all downloads. 1 downloads every file as a single GET.
+     */
+    private int rangeConcurrency = 8;
 
   }
 
@@ -99,6 +262,10 @@ public class MappingConfiguration {
      * Name of the DynamoDB table to export
      */
     private String dynamoTableName;
+    /**
+     * Format requested for point in time exports. Imports detect the format from the export manifest.
+     */
+    private ExportFormat exportFormat = ExportFormat.ION;
 
   }
 }
@@ -0,0 +1,117 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Computes the hash partition PostgreSQL routes a row to, for tables partitioned by hash on a single text column, so
+ * rows can be written to their partition directly. Mirrors {@code hash_bytes_extended} (Bob Jenkins' lookup3) and
+ * {@code compute_partition_hash_value} of PostgreSQL for deterministic collations. Callers verify the result against
+ * the server with {@code satisfies_hash_partition} before relying on it.
+ */
+final class PartitionHash {
+
+  /**
+   * Seed PostgreSQL hashes partition keys with
+   */
+  private static final long HASH_PARTITION_SEED = 0x7A5B22367996DCFDL;
+
+  private PartitionHash() {
+  }
+
+  /**
+   * @param key The value of the partition key.
+   * @param modulus The number of partitions.
+   * @return The remainder of the partition holding rows with the key.
+   */
+  static int remainder(String key, int modulus) {
+    var rowHash = hashCombine64(0, hashBytesExtended(key.getBytes(StandardCharsets.UTF_8), HASH_PARTITION_SEED));
+    return (int) Long.remainderUnsigned(rowHash, modulus);
+  }
+
+  private static long hashCombine64(long a, long b) {
+    a ^= b + 0x49a0f4dd15e5a8e3L + (a << 54) + (a >>> 7);
+    return a;
+  }
+
+  static long hashBytesExtended(byte[] k, long seed) {
+    var len = k.length;
+    var s = new int[3];
+    s[0] = s[1] = s[2] = 0x9e3779b9 + len + 3923095;
+    if (seed != 0) {
+      s[0] += (int) (seed >>> 32);
+      s[1] += (int) seed;
+      mix(s);
+    }
+
+    var offset = 0;
+    while (len >= 12) {
+      s[0] += word(k, offset);
+      s[1] += word(k, offset + 4);
+      s[2] += word(k, offset + 8);
+      mix(s);
+      offset += 12;
+      len -= 12;
+    }
+
+    // the remaining bytes are added little endian; the lowest byte of c is reserved for the length
+    switch (len) {
+      case 11:
+        s[2] += (k[offset + 10] & 0xff) << 24;
+      case 10:
+        s[2] += (k[offset + 9] & 0xff) << 16;
+      case 9:
+        s[2] += (k[offset + 8] & 0xff) << 8;
+      case 8:
+        s[1] += (k[offset + 7] & 0xff) << 24;
+      case 7:
+        s[1] += (k[offset + 6] & 0xff) << 16;
+      case 6:
+        s[1] += (k[offset + 5] & 0xff) << 8;
+      case 5:
+        s[1] += k[offset + 4] & 0xff;
+      case 4:
+        s[0] += (k[offset + 3] & 0xff) << 24;
+      case 3:
+        s[0] += (k[offset + 2] & 0xff) << 16;
+      case 2:
+        s[0] += (k[offset + 1] & 0xff) << 8;
+      case 1:
+        s[0] += k[offset] & 0xff;
+      default:
+        break;
+    }
+    finalMix(s);
+    return ((long) s[1] << 32) | (s[2] & 0xffffffffL);
+  }
+
+  private static int word(byte[] k, int offset) {
+    return (k[offset] & 0xff) | (k[offset + 1] & 0xff) << 8 | (k[offset + 2] & 0xff) << 16 | (k[offset + 3] & 0xff) << 24;
+  }
+
+  private static void mix(int[] s) {
+    int a = s[0], b = s[1], c = s[2];
+    a -= c;  a ^= Integer.rotateLeft(c, 4);  c += b;
+    b -= a;  b ^= Integer.rotateLeft(a, 6);  a += c;
+    c -= b;  c ^= Integer.rotateLeft(b, 8);  b += a;
+    a -= c;  a ^= Integer.rotateLeft(c, 16); c += b;
+    b -= a;  b ^= Integer.rotateLeft(a, 19); a += c;
+    c -= b;  c ^= Integer.rotateLeft(b, 4);  b += a;
+    s[0] = a;
+    s[1] = b;
+    s[2] = c;
+  }
+
+  private static void finalMix(int[] s) {
+    int a = s[0], b = s[1], c = s[2];
+    c ^= b; c -= Integer.rotateLeft(b, 14);
+    a ^= c; a -= Integer.rotateLeft(c, 11);
+    b ^= a; b -= Integer.rotateLeft(a, 25);
+    c ^= b; c -= Integer.rotateLeft(b, 16);
+    a ^= c; a -= Integer.rotateLeft(c, 4);
+    b ^= a; b -= Integer.rotateLeft(a, 14);
+    c ^= b; c -= Integer.rotateLeft(b, 24);
+    s[0] = a;
+    s[1] = b;
+    s[2] = c;
+  }
+}
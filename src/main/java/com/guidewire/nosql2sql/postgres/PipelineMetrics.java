@@ -0,0 +1,135 @@
+package com.guidewire.nosql2sql.postgres;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Locale;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.model.ExportFormat;
+
+/**
+ * Micrometer meters of the import and sync pipeline. They are published on /actuator/metrics and
+ * /actuator/prometheus. Row counters are tagged by table, so per table throughput is the rate of
+ * {@code nosql2sql.rows.written}.
+ */
+@Component
+public class PipelineMetrics {
+
+  private final MeterRegistry meterRegistry;
+  private final Counter s3ObjectsRead;
+  private final Counter s3BytesRead;
+  private final Counter syncRecordsCoalesced;
+
+  public PipelineMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    // untagged counters on the read path are resolved once instead of on every read
+    this.s3ObjectsRead = Counter.builder("nosql2sql.s3.objects.read")
+        .description("Export data files read from S3")
+        .register(meterRegistry);
+    this.s3BytesRead = Counter.builder("nosql2sql.s3.bytes.read")
+        .baseUnit("bytes")
+        .description("Compressed bytes of export data files read from S3")
+        .register(meterRegistry);
+    this.syncRecordsCoalesced = Counter.builder("nosql2sql.sync.records.coalesced")
+        .description("Stream records dropped because a later record of the same item replaced them")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Counts rows that were written to a table.
+   * @param tableName The name of the table.
+   * @param rows The number of rows.
+   */
+  public void rowsWritten(String tableName, long rows) {
+    Counter.builder("nosql2sql.rows.written")
+        .description("Rows written to PostgreSQL")
+        .tag("table", tableName)
+        .register(meterRegistry)
+        .increment(rows);
+  }
+
+  /**
+   * Counts rows that could not be written to a table.
+   * @param tableName The name of the table.
+   * @param rows The number of rows.
+   */
+  public void rowsFailed(String tableName, long rows) {
+    Counter.builder("nosql2sql.rows.failed")
+        .description("Rows that could not be written to PostgreSQL")
+        .tag("table", tableName)
+        .register(meterRegistry)
+        .increment(rows);
+  }
+
+  /**
+   * Returns the timer of a kind of write statement, published with a latency histogram.
+   * @param statement The kind of statement, e.g. insert, batch or copy.
+   * @return The timer.
+   */
+  public Timer statementTimer(String statement) {
+    return Timer.builder("nosql2sql.statement")
+        .description("Latency of the statements writing rows")
+        .tag("statement", statement)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  /**
+   * Counts a DDL statement, tagged by its command.
+   * @param sql The statement.
+   */
+  public void ddl(String sql) {
+    var command = sql.strip().split("\\s+", 2)[0].toLowerCase(Locale.ROOT);
+    Counter.builder("nosql2sql.ddl")
+        .description("DDL statements run against PostgreSQL")
+        .tag("command", command)
+        .register(meterRegistry)
+        .increment();
+  }
+
+  /**
+   * Counts an export data file opened on S3.
+   */
+  public void s3ObjectRead() {
+    s3ObjectsRead.increment();
+  }
+
+  /**
+   * Counts compressed bytes read from S3.
+   * @param bytes The number of bytes.
+   */
+  public void s3BytesRead(long bytes) {
+    s3BytesRead.increment(bytes);
+  }
+
+  /**
+   * Returns the timer of reading and decoding a single item of an export data file.
+   * @param format The format of the export.
+   * @return The timer.
+   */
+  public Timer decodeTimer(ExportFormat format) {
+    return Timer.builder("nosql2sql.export.decode")
+        .description("Time to read and decode a single exported item")
+        .tag("format", String.valueOf(format))
+        .register(meterRegistry);
+  }
+
+  /**
+   * Publishes the number of stream records waiting to be applied.
+   * @param depth Supplies the current number of waiting records.
+   */
+  public void syncQueueDepth(Supplier<Number> depth) {
+    Gauge.builder("nosql2sql.sync.queue.depth", depth)
+        .description("Stream records received on /api/syncData waiting to be applied")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Counts stream records that were not applied because a later record of the same item replaced them.
+   */
+  public void syncRecordCoalesced() {
+    syncRecordsCoalesced.increment();
+  }
+}
@@ -5,27 +5,49 @@ import com.amazon.ion.system.IonTextWriterBuilder;
 import com.amazonaws.services.dynamodbv2.model.Record;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.guidewire.nosql2sql.postgres.ExportFormatReader.ChangeReader;
+import com.guidewire.nosql2sql.postgres.ExportFormatReader.ItemReader;
 import com.guidewire.nosql2sql.postgres.TableMapping.ColumnMapping;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
+import javax.sql.DataSource;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.services.dynamodb.model.ExportFormat;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 
@@ -41,31 +63,78 @@ public class PostgresManager {
 
   private final S3Client s3Client;
   private final JdbcClient jdbcClient;
-  private final TableMapperManager tableMapperManager = new TableMapperManager();
+  private final JdbcTemplate jdbcTemplate;
+  private final DataSource dataSource;
+  private final TableMapperManager tableMapperManager;
+  private final SqlTemplateCache sqlTemplateCache = new SqlTemplateCache();
   private final MappingConfiguration mappingConfiguration;
   private final ObjectMapper objectMapper;
+  private final List<ExportFormatReader> exportFormatReaders;
+  private final ExportDiscovery exportDiscovery;
+  private final ExportSources exportSources;
+  private final TransactionTemplate transactionTemplate;
+  private final PipelineMetrics pipelineMetrics;
+  private final ItemNormalizer itemNormalizer;
+  private final RowWriter directWriter = new DirectRowWriter();
+  /**
+   * Child tables of each live table, whose rows are deleted with the rows of their items. Filled from the catalog the
+   * first time a live table is written, and with every child table written since.
+   */
+  private final Map<String, Set<String>> childTables = new ConcurrentHashMap<>();
+  private Timer insertTimer;
+  private Timer upsertTimer;
+  private Timer deleteTimer;
+
+  @PostConstruct
+  void registerMeters() {
+    insertTimer = pipelineMetrics.statementTimer("insert");
+    upsertTimer = pipelineMetrics.statementTimer("upsert");
+    deleteTimer = pipelineMetrics.statementTimer("delete");
+  }
 
   /**
    * Applies a single AWS DynamoDB record to the PostgreSQL database.
    * @param rec The DynamoDB record to apply.
    */
   public void applyAwsRecord(Record rec) {
-    var jsonOut = JsonNodeFactory.instance.objectNode();
+    applyAwsRecord(rec, directWriter);
+  }
+
+  /**
+   * Applies a single AWS DynamoDB record to the PostgreSQL database, buffering inserted rows in the given writer.
+   * @param rec The DynamoDB record to apply.
+   * @param writer The writer used for inserted rows.
+   */
+  public void applyAwsRecord(Record rec, RowWriter writer) {
+    applyItem(recordItem(rec), convertToApplyType(rec.getEventName()), writer);
+  }
+
+  // converts the new image of a stream record, or the old image of a removed item, to item attributes
+  static Map<String, ItemAttribute> recordItem(Record rec) {
+    var item = new LinkedHashMap<String, ItemAttribute>();
     var image = Optional.ofNullable(rec.getDynamodb().getNewImage()).or(() -> Optional.ofNullable(rec.getDynamodb().getOldImage()));
     image.ifPresent(r -> r.forEach((k, v) -> {
       if (v.getS() != null) {
-        jsonOut.put(k, v.getS());
+        item.put(k, new ItemAttribute(ColumnDataType.STRING, v.getS()));
       } else if (v.getBOOL() != null) {
-        jsonOut.put(k, v.getBOOL());
+        item.put(k, new ItemAttribute(ColumnDataType.BOOL, v.getBOOL()));
       } else if (v.getN() != null) {
-        jsonOut.put(k, v.getN());
+        item.put(k, ItemAttribute.number(new BigDecimal(v.getN())));
+      } else if (v.getB() != null) {
+        var bytes = new byte[v.getB().remaining()];
+        v.getB().duplicate().get(bytes);
+        item.put(k, new ItemAttribute(ColumnDataType.BINARY, bytes));
+      } else if (v.getSS() != null) {
+        item.put(k, new ItemAttribute(ColumnDataType.STRING_SET, List.copyOf(v.getSS())));
+      } else if (v.getNS() != null) {
+        item.put(k, new ItemAttribute(ColumnDataType.NUMBER_SET, v.getNS().stream().map(BigDecimal::new).toList()));
       } else if (v.getM() != null) {
-        jsonOut.set(k, new ObjectMapper().valueToTree(v.getM()));
+        item.put(k, new ItemAttribute(ColumnDataType.JSON, new ObjectMapper().valueToTree(v.getM())));
       } else {
         log.warn("Key: {} with value: {} not supported", k, v);
       }
     }));
-    applyToPostgres(jsonOut, convertToApplyType(rec.getEventName()));
+    return item;
   }
 
   /**
@@ -74,86 +143,305 @@ public class PostgresManager {
    * @param applyType The type of operation to apply (INSERT, UPDATE, DELETE).
    */
   public void applyToPostgres(JsonNode jsonNode, ApplyType applyType) {
+    applyToPostgres(jsonNode, applyType, directWriter);
+  }
 
-    var tableName = Optional.ofNullable(mappingConfiguration.getDynamodb().getDiscriminatorAttributeName())
-        .map(attr -> jsonNode.get(attr).asText())
-        .map(TableMapperManager::escapeTableName)
-        // when discriminator attribute is not used, postgresql table name will match dynamo
-        .orElse(mappingConfiguration.getDynamodb().getDynamoTableName());
+  /**
+   * Applies a single record from DynamoDB to the PostgreSQL database, handing inserted rows to the writer.
+   * @param jsonNode The DynamoDB record in JSON format.
+   * @param applyType The type of operation to apply (INSERT, UPDATE, DELETE).
+   * @param writer The writer used for inserted rows.
+   */
+  public void applyToPostgres(JsonNode jsonNode, ApplyType applyType, RowWriter writer) {
+    applyItem(ItemAttribute.itemFromJson(jsonNode), applyType, writer);
+  }
+
+  /**
+   * Applies a single decoded DynamoDB item to the PostgreSQL database. Inserted rows are handed to the writer, which may
+   * buffer them. Updates replace the row with the same primary key with a single upsert. Pending rows of the table are
+   * flushed before any delete so that the order of operations is kept.
+   * @param item The attributes of the item.
+   * @param applyType The type of operation to apply (INSERT, UPDATE, DELETE).
+   * @param writer The writer used for inserted rows.
+   */
+  public void applyItem(Map<String, ItemAttribute> item, ApplyType applyType, RowWriter writer) {
+    applyItem(item, applyType, writer, false);
+  }
+
+  /**
+   * Applies a single decoded DynamoDB item, optionally keeping the tables that already exist.
+   * @param item The attributes of the item.
+   * @param applyType The type of operation to apply (INSERT, UPDATE, DELETE).
+   * @param writer The writer used for inserted rows.
+   * @param retainExistingTables If true, tables are never dropped when they are first mapped, even if recreate-tables
+   *     is set. Resumed imports and incremental exports set it, as the existing tables hold rows written before.
+   */
+  public void applyItem(Map<String, ItemAttribute> item, ApplyType applyType, RowWriter writer, boolean retainExistingTables) {
+    applyItem(item, applyType, writer, tableNameOf(item), UnaryOperator.identity(), retainExistingTables);
+  }
+
+  /**
+   * Inserts a single decoded DynamoDB item into the staging table of its live table.
+   * @param item The attributes of the item.
+   * @param writer The writer used for inserted rows.
+   * @param session The staged import the item belongs to.
+   */
+  public void stageItem(Map<String, ItemAttribute> item, RowWriter writer, StagingSession session) {
+    applyItem(item, ApplyType.INSERT, writer, tableNameOf(item), session::stagingTableOf, false);
+  }
+
+  /**
+   * Writes the row of an item and the rows of its child tables. The child rows of an updated or deleted item are
+   * deleted first, and those of an updated item are written again from its new image.
+   * @param liveTable The live table of the item.
+   * @param targetTable Maps a live table to the table rows are written to.
+   * @param retainExistingTables If true, existing tables are kept even if recreate-tables is set.
+   */
+  private void applyItem(Map<String, ItemAttribute> item, ApplyType applyType, RowWriter writer, String liveTable, UnaryOperator<String> targetTable,
+      boolean retainExistingTables) {
+    var normalized = itemNormalizer.normalize(item, configuredKeyColumns());
+    if (applyType != ApplyType.INSERT) {
+      deleteChildRows(liveTable, normalized.row(), writer);
+    }
+    applyRow(normalized.row(), applyType, writer, targetTable.apply(liveTable), List.of(), retainExistingTables);
+    if (applyType != ApplyType.DELETE) {
+      normalized.children().forEach(child -> {
+        var childTable = liveTable + child.tableSuffix();
+        applyRow(child.row(), ApplyType.INSERT, writer, targetTable.apply(childTable), child.keyColumns(), retainExistingTables);
+        childTablesOf(liveTable).add(childTable);
+      });
+    }
+  }
+
+  private void deleteChildRows(String liveTable, Map<String, ItemAttribute> row, RowWriter writer) {
+    if (!mappingConfiguration.getPostgresql().getChildTables().isEnabled()) {
+      return;
+    }
+    var children = childTablesOf(liveTable);
+    var keyColumns = configuredKeyColumns();
+    if (children.isEmpty() || !row.keySet().containsAll(keyColumns)) {
+      return;
+    }
+    var keyAttributes = new LinkedHashMap<String, ItemAttribute>();
+    keyColumns.forEach(column -> keyAttributes.put(column, row.get(column)));
+    var keys = extractColumns(tableMapperManager.map(keyAttributes, liveTable), keyAttributes);
+    children.forEach(childTable -> {
+      // a child table not written since the start of the process is not mapped, its rows are deleted by key alone
+      var mapping = Optional.ofNullable(tableMapperManager.getTableMapping(childTable))
+          .orElseGet(() -> tableMapperManager.map(keyAttributes, childTable));
+      var target = writeTarget(mapping, keys);
+      writer.flush(target.getTableName());
+      var template = sqlTemplateCache.delete(target, keyColumns);
+      this.runUpdate(deleteTimer, template.sql(), keys.values().toArray(), template.argTypes(), false);
+    });
+  }
+
+  private Set<String> childTablesOf(String liveTable) {
+    return childTables.computeIfAbsent(liveTable, this::findChildTables);
+  }
+
+  /**
+   * Finds the child tables of a live table in the catalog, so that the child rows of items written before the process
+   * started are deleted as well. Child tables are named after their live table, and keyed by the key attributes of the
+   * item and an ordinal.
+   */
+  private Set<String> findChildTables(String liveTable) {
+    var found = new ConcurrentSkipListSet<String>(String.CASE_INSENSITIVE_ORDER);
+    if (!mappingConfiguration.getPostgresql().getChildTables().isEnabled()) {
+      return found;
+    }
+    var sql = "SELECT c.relname FROM pg_class c WHERE c.relname LIKE ? ESCAPE '\\' AND c.relkind IN ('r', 'p') AND NOT c.relispartition"
+        + " AND c.relnamespace = current_schema()::regnamespace";
+    var prefix = liveTable.toLowerCase().replace("\\", "\\\\").replace("_", "\\_").replace("%", "\\%") + "\\_%";
+    var keyColumns = new ArrayList<>(configuredKeyColumns().stream().map(String::toLowerCase).toList());
+    keyColumns.add(ItemNormalizer.ORDINAL);
+    jdbcClient.sql(sql).param(prefix).query(String.class).list().stream()
+        .filter(table -> !StagingSession.isStagingTable(table))
+        .filter(table -> primaryKeyColumns(table).containsAll(keyColumns))
+        .forEach(found::add);
+    if (!found.isEmpty()) {
+      log.info("Found child tables {} of {}", found, liveTable);
+    }
+    return found;
+  }
+
+  /**
+   * @param keyColumns The primary key of the table if it is created, or empty for the configured key attributes.
+   */
+  private void applyRow(Map<String, ItemAttribute> item, ApplyType applyType, RowWriter writer, String targetTable, List<String> keyColumns,
+      boolean retainExistingTables) {
+    var tableMapping = resolveTableMapping(targetTable, item, keyColumns, retainExistingTables);
+    var columns = extractColumns(tableMapping, item);
+    // rows of a partitioned table are written to their partition, so every statement and COPY touches a single one
+    var target = writeTarget(tableMapping, columns);
+    var tableName = target.getTableName();
 
-    var tableMapping = Optional.ofNullable(tableMapperManager.getTableMapping(tableName))
-        .map(tm -> maybeAddColumns(tm, jsonNode))
-        .orElseGet(() -> createTable(tableMapperManager.addTableMapping(tableMapperManager.map(jsonNode, tableName))));
-
-    // extract a map of column names and values
-    var columns = tableMapping.getColumns().entrySet().stream()
-        .filter(e -> jsonNode.has(e.getKey()))
-        .map(e -> extractValue(jsonNode, e.getValue()))
-        .collect(Collectors.toMap(Entry::getKey, Entry::getValue));
-
-    JdbcClient.StatementSpec spec = null;
-    var sql = "";
-    var hasSortKey = mappingConfiguration.getDynamodb().getSortKeyName().isPresent();
-    var pk = mappingConfiguration.getDynamodb().getPartitionKeyName();
-    var sk = mappingConfiguration.getDynamodb().getSortKeyName().orElse("");
-    var whereUniqueSql = " WHERE " + pk + " = " + "'" + columns.get(pk) + "'" + (hasSortKey ? " AND " + sk + " = " + "'" + columns.get(sk) + "'" : "");
     switch (applyType) {
       case INSERT -> {
-        this.insertData(columns, tableMapping, sql, tableName, spec);
+        writer.insert(target, columns);
       }
       case UPDATE -> {
-        this.deleteData(tableName, whereUniqueSql, false);
-        this.insertData(columns, tableMapping, sql, tableName, spec);
+        if (target.hasPrimaryKey()) {
+          writer.upsert(target, columns);
+        } else {
+          // tables created before they had a primary key can only be updated by replacing the row
+          writer.flush(tableName);
+          this.deleteData(target, columns, false);
+          writer.insert(target, columns);
+        }
       }
       case DELETE -> {
-        this.deleteData(tableName, whereUniqueSql, true);
+        writer.flush(tableName);
+        this.deleteData(target, columns, true);
       }
       default -> log.error("Unknown apply type: {}", applyType);
     }
+  }
+
+  private static TableMapping writeTarget(TableMapping tableMapping, Map<String, Object> columns) {
+    if (tableMapping.isPartitioned() && columns.get(tableMapping.getPartitionColumn()) instanceof String key) {
+      return tableMapping.partition(PartitionHash.remainder(key, tableMapping.getPartitions()));
+    }
+    return tableMapping;
+  }
+
+  /**
+   * Opens a writer for the given load mode. Buffering writers must be closed to send their remaining rows.
+   * @param loadMode The strategy used to write rows.
+   * @return A writer for the load mode. Writers are not thread safe.
+   */
+  public RowWriter openWriter(LoadMode loadMode) {
+    return switch (loadMode) {
+      case INSERT -> directWriter;
+      case BATCH -> new BatchRowWriter(jdbcTemplate, sqlTemplateCache, mappingConfiguration.getPostgresql().getBatch(), pipelineMetrics);
+      case COPY_TEXT -> new CopyRowWriter(dataSource, false, directWriter, pipelineMetrics);
+      case COPY_BINARY -> new CopyRowWriter(dataSource, true, directWriter, pipelineMetrics);
+    };
+  }
+
+  private TableMapping resolveTableMapping(String tableName, Map<String, ItemAttribute> item, List<String> keyColumns, boolean retainExistingTables) {
+    var existing = tableMapperManager.getTableMapping(tableName);
+    if (existing != null && tableMapperManager.isMapped(existing, item)) {
+      return existing;
+    }
+    // a mapping is only published once the table or columns it describes exist
+    return tableMapperManager.updateTableMapping(tableName, current -> current == null
+        ? createTable(tableMapperManager.map(item, tableName).withKeyColumns(keyColumns), retainExistingTables)
+        : addColumns(current, tableMapperManager.extend(current, item)));
+  }
 
-    // once a dynamo stream is supported, this method could be used to handle inserts, updates, and deletes.
+  private String tableNameOf(Map<String, ItemAttribute> item) {
+    return Optional.ofNullable(mappingConfiguration.getDynamodb().getDiscriminatorAttributeName())
+        .map(attr -> String.valueOf(item.get(attr).value()))
+        .map(TableMapperManager::escapeTableName)
+        // when discriminator attribute is not used, postgresql table name will match dynamo
+        .orElse(mappingConfiguration.getDynamodb().getDynamoTableName());
+  }
 
-    // note: we want to be able to support batching these inserts. This could be done by creating a row wrapper object containing
-    // a list of table rows, each table row identifies the table and a map of column values. The wrapper can be added to a queue
-    // and processed async. That would allow batching and parallel threads. Initially, each call to this
-    // method just inserts a single row into a single table.
+  /**
+   * Works out the tables and columns needed for a sample of items, without running any DDL.
+   * @param items The sampled items.
+   * @return The inferred mappings, keyed by table name.
+   */
+  public Map<String, TableMapping> inferTableMappings(Stream<Map<String, ItemAttribute>> items) {
+    var mappings = new HashMap<String, TableMapping>();
+    items.forEach(item -> {
+      var tableName = tableNameOf(item);
+      var normalized = itemNormalizer.normalize(item, configuredKeyColumns());
+      inferTableMapping(mappings, tableName, normalized.row(), List.of());
+      normalized.children().forEach(child -> inferTableMapping(mappings, tableName + child.tableSuffix(), child.row(), child.keyColumns()));
+    });
+    return mappings;
+  }
 
-    // Note: Eventually, this could write to multiple tables to support collections of nested documents.
-    // the table name would always be based on the primary table + attribute name
-    // some limit on max number of nested docs is needed
+  private void inferTableMapping(Map<String, TableMapping> mappings, String tableName, Map<String, ItemAttribute> row, List<String> keyColumns) {
+    var mapping = mappings.get(tableName);
+    mappings.put(tableName, mapping == null
+        ? tableMapperManager.map(row, tableName).withKeyColumns(keyColumns)
+        : tableMapperManager.extend(mapping, row));
+  }
 
+  /**
+   * Creates the tables of inferred mappings with a single CREATE TABLE each. Tables that are already mapped get all of
+   * their missing columns in a single ALTER TABLE.
+   * @param inferred The inferred mappings.
+   * @param retainExistingTables If true, existing tables are kept even if recreate-tables is set.
+   */
+  public void applyInferredSchema(Collection<TableMapping> inferred, boolean retainExistingTables) {
+    inferred.forEach(mapping -> tableMapperManager.updateTableMapping(mapping.getTableName(), current -> current == null
+        ? createTable(mapping, retainExistingTables)
+        : addColumns(current, current.merge(mapping))));
   }
 
-  private int insertData(Map<String, Object> columns, TableMapping tableMapping, String sql, String tableName, JdbcClient.StatementSpec spec) {
-    var columnsNames = String.join(",", columns.keySet());
-    var bindVariables = columns.keySet().stream().map(key -> ":" + key + (tableMapping.getColumn(key).getColumnType() == ColumnDataType.JSON ? "::jsonb" : "")).collect(Collectors.joining(","));
+  // extract a map of column names and values
+  static Map<String, Object> extractColumns(TableMapping tableMapping, Map<String, ItemAttribute> item) {
+    var columns = new LinkedHashMap<String, Object>();
+    item.forEach((name, attribute) -> {
+      var column = tableMapping.getColumn(name);
+      if (column != null) {
+        columns.put(name, extractValue(attribute, column));
+      }
+    });
+    return columns;
+  }
 
-    // insert into postgres
-    sql = "INSERT INTO " + tableName + " (" + columnsNames + ") VALUES (" + bindVariables + ")";
-    spec = jdbcClient.sql(sql).params(columns);
+  private int insertData(Map<String, Object> columns, TableMapping tableMapping) {
+    var template = sqlTemplateCache.insert(tableMapping, columns.keySet());
+    var rows = 0;
+    try {
+      rows = this.runUpdate(insertTimer, template.sql(), columns.values().toArray(), template.argTypes(), true);
+    } finally {
+      countRows(tableMapping.getTableName(), rows);
+    }
+    return rows;
+  }
 
-    return this.runSpec(spec, sql, columns, true);
+  private int upsertData(Map<String, Object> columns, TableMapping tableMapping) {
+    var template = sqlTemplateCache.upsert(tableMapping, columns.keySet());
+    var rows = 0;
+    try {
+      rows = this.runUpdate(upsertTimer, template.sql(), columns.values().toArray(), template.argTypes(), true);
+    } finally {
+      countRows(tableMapping.getTableName(), rows);
+    }
+    return rows;
   }
 
-  private int deleteData(String tableName, String whereUniqueSql, boolean logError) {
-    var sql = "DELETE FROM " + tableName + whereUniqueSql;
-    var spec = jdbcClient.sql(sql);
+  private void countRows(String tableName, int rows) {
+    if (rows > 0) {
+      pipelineMetrics.rowsWritten(tableName, rows);
+    } else {
+      pipelineMetrics.rowsFailed(tableName, 1);
+    }
+  }
 
-    return this.runSpec(spec, sql, null, logError);
+  private int deleteData(TableMapping tableMapping, Map<String, Object> columns, boolean logError) {
+    var keyColumns = tableMapping.hasPrimaryKey() ? tableMapping.getKeyColumns() : configuredKeyColumns();
+    var template = sqlTemplateCache.delete(tableMapping, keyColumns);
+    var args = keyColumns.stream().map(columns::get).toArray();
+    return this.runUpdate(deleteTimer, template.sql(), args, template.argTypes(), logError);
   }
 
-  private int runSpec(JdbcClient.StatementSpec spec, String sql, Map<String, Object> columns, boolean logError) {
-    var returnVal = 1;
+  /**
+   * Runs a single statement. A statement that fails is thrown, so that callers do not take its row as written.
+   * @param logError If true, a statement that does not change exactly one row is logged.
+   * @return The number of rows changed.
+   * @throws IllegalStateException if the statement fails.
+   */
+  private int runUpdate(Timer timer, String sql, Object[] args, int[] argTypes, boolean logError) {
+    var start = System.nanoTime();
     try {
-      returnVal = spec.update();
-      if (logError && returnVal != 1) {
-        log.error("SQL update failed! {} {}", sql, columns);
+      var rows = jdbcTemplate.update(sql, args, argTypes);
+      if (logError && rows != 1) {
+        log.error("SQL update failed! {} {}", sql, Arrays.toString(args));
       }
-    } catch (Exception e) {
+      return rows;
+    } catch (RuntimeException e) {
       log.error("Update failed", e);
+      throw new IllegalStateException("Update failed: " + sql, e);
+    } finally {
+      timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     }
-
-    return returnVal;
   }
 
   private void startSync() {
@@ -162,73 +450,395 @@ public class PostgresManager {
   }
 
   public TableMapping createTable(TableMapping tableMapping) {
-    if (mappingConfiguration.getPostgresql().isRecreateTables()) {
+    return createTable(tableMapping, false);
+  }
+
+  private TableMapping createTable(TableMapping tableMapping, boolean retainExistingTables) {
+    if (StagingSession.isStagingTable(tableMapping.getTableName())) {
+      return createStagingTable(tableMapping);
+    }
+    if (mappingConfiguration.getPostgresql().isRecreateTables() && !retainExistingTables) {
       dropTable(tableMapping.getTableName());
     }
     log.info("Creating table {}", tableMapping);
 
-    var sql = "CREATE TABLE IF NOT EXISTS " + tableMapping.getTableName() + " (" + tableMapping.getColumns().entrySet().stream()
+    var definitions = tableMapping.getColumns().entrySet().stream()
         .map(e -> e.getKey() + " " + e.getValue().getColumnType().getDatabaseType())
-        .collect(Collectors.joining(",")) + ")";
-    log.debug(SQL_DEBUG_MESSAGE, sql);
+        .collect(Collectors.toCollection(ArrayList::new));
+    // child tables are keyed by the key of their item and their ordinals
+    var keyColumns = tableMapping.hasPrimaryKey() ? tableMapping.getKeyColumns() : configuredKeyColumns();
+    var hasKey = keyColumns.stream().allMatch(column -> tableMapping.getColumn(column) != null);
+    if (hasKey) {
+      definitions.add("PRIMARY KEY (" + String.join(",", keyColumns) + ")");
+    } else {
+      log.warn("Creating {} without a primary key, as the key attributes {} are not all mapped", tableMapping.getTableName(), keyColumns);
+    }
+    var partitions = hasKey ? mappingConfiguration.getPostgresql().getPartitions() : 0;
+    runDdl("CREATE TABLE IF NOT EXISTS " + tableMapping.getTableName() + " (" + String.join(",", definitions) + ")"
+        + partitionClause(partitions));
+    createPartitions(tableMapping.getTableName(), partitions, false);
+    sqlTemplateCache.invalidate(tableMapping.getTableName());
+
+    // an existing table keeps whatever key and partitioning it was created with
+    return withPartitioning(tableMapping.withKeyColumns(primaryKeyOf(tableMapping)));
+  }
+
+  private String partitionClause(int partitions) {
+    return partitions > 0 ? " PARTITION BY HASH (" + mappingConfiguration.getDynamodb().getPartitionKeyName() + ")" : "";
+  }
+
+  /**
+   * Creates the missing partitions of a table partitioned by hash. An existing table that is not partitioned is left
+   * as it is.
+   */
+  private void createPartitions(String tableName, int partitions, boolean unlogged) {
+    if (partitions <= 0) {
+      return;
+    }
+    if (hashPartitionColumn(tableName).isEmpty()) {
+      log.warn("Table {} already exists and is not partitioned by hash, rows are written to it unpartitioned", tableName);
+      return;
+    }
+    for (var remainder = 0; remainder < partitions; remainder++) {
+      runDdl("CREATE " + (unlogged ? "UNLOGGED " : "") + "TABLE IF NOT EXISTS " + TableMapping.partitionName(tableName, remainder)
+          + " PARTITION OF " + tableName + " FOR VALUES WITH (MODULUS " + partitions + ", REMAINDER " + remainder + ")");
+    }
+  }
 
+  /**
+   * Reads how a table is partitioned. Rows are only routed to partitions directly if the table is partitioned by hash
+   * on a single text column, its partitions follow the naming of {@link TableMapping#partitionName}, and the server
+   * agrees with {@link PartitionHash} on sample keys. Otherwise rows are written through the parent table.
+   */
+  private TableMapping withPartitioning(TableMapping tableMapping) {
+    var tableName = tableMapping.getTableName();
+    var partitionColumn = hashPartitionColumn(tableName)
+        .flatMap(name -> tableMapping.getColumns().keySet().stream().filter(column -> column.equalsIgnoreCase(name)).findFirst())
+        .filter(column -> tableMapping.getColumn(column).getColumnType() == ColumnDataType.STRING);
+    if (partitionColumn.isEmpty()) {
+      return tableMapping.withPartitions(null, 0);
+    }
+    var sql = "SELECT count(*) FROM pg_inherits WHERE inhparent = to_regclass(?)";
+    var partitions = jdbcClient.sql(sql).param(tableName).query(Integer.class).single();
+    var routed = partitions > 0 && IntStream.range(0, partitions)
+        .allMatch(remainder -> tableExists(TableMapping.partitionName(tableName, remainder)))
+        && routesLikeServer(tableName, partitions);
+    if (!routed) {
+      log.warn("Rows of {} are written through the partitioned table, as its partitions cannot be computed locally", tableName);
+      return tableMapping.withPartitions(null, 0);
+    }
+    log.info("Writing rows of {} directly to its {} partitions by {}", tableName, partitions, partitionColumn.get());
+    return tableMapping.withPartitions(partitionColumn.get(), partitions);
+  }
+
+  private Optional<String> hashPartitionColumn(String tableName) {
+    var sql = "SELECT a.attname FROM pg_partitioned_table p JOIN pg_attribute a ON a.attrelid = p.partrelid AND a.attnum = p.partattrs[0]"
+        + " WHERE p.partrelid = to_regclass(?) AND p.partstrat = 'h' AND p.partnatts = 1";
+    return jdbcClient.sql(sql).param(tableName).query(String.class).optional();
+  }
+
+  private boolean tableExists(String tableName) {
+    return jdbcClient.sql("SELECT to_regclass(?) IS NOT NULL").param(tableName).query(Boolean.class).single();
+  }
+
+  // keys of several lengths cover the full blocks and every tail length of the hash
+  private boolean routesLikeServer(String tableName, int partitions) {
+    var sql = "SELECT satisfies_hash_partition(to_regclass(?)::oid, ?, ?, ?::" + ColumnDataType.STRING.getDatabaseType() + ")";
+    try {
+      return Stream.of("", "a", "key-1", "partition-key", "a partition key of more than 24 bytes", "cl\u00e9-\u043a\u043b\u044e\u0447")
+          .allMatch(key -> jdbcClient.sql(sql).params(tableName, partitions, PartitionHash.remainder(key, partitions), key)
+              .query(Boolean.class).single());
+    } catch (DataAccessException e) {
+      log.warn("Unable to verify the partitions of {}", tableName, e);
+      return false;
+    }
+  }
+
+  /**
+   * Staging tables are unlogged and have no key or index, so rows are written without WAL or index maintenance.
+   * A staging table left over from an earlier import is always replaced.
+   */
+  private TableMapping createStagingTable(TableMapping tableMapping) {
+    dropTable(tableMapping.getTableName());
+    log.info("Creating staging table {}", tableMapping);
+    var keyColumns = tableMapping.hasPrimaryKey() ? tableMapping.getKeyColumns() : configuredKeyColumns();
+    var hasKey = keyColumns.stream().allMatch(column -> tableMapping.getColumn(column) != null);
+    var partitions = hasKey ? mappingConfiguration.getPostgresql().getPartitions() : 0;
+    // a partitioned table holds no rows itself, so only its partitions are unlogged
+    var sql = "CREATE " + (partitions > 0 ? "" : "UNLOGGED ") + "TABLE " + tableMapping.getTableName() + " ("
+        + tableMapping.getColumns().entrySet().stream()
+        .map(e -> e.getKey() + " " + e.getValue().getColumnType().getDatabaseType())
+        .collect(Collectors.joining(",")) + ")" + partitionClause(partitions);
+    runDdl(sql);
+    createPartitions(tableMapping.getTableName(), partitions, true);
+    sqlTemplateCache.invalidate(tableMapping.getTableName());
+    return withPartitioning(tableMapping);
+  }
+
+  /**
+   * Builds the primary key of a loaded staging table, makes it durable and analyzes it, then swaps it in for the live
+   * table in a single transaction. Readers of the live table see either the old or the new data, never a partial load.
+   * Tables of a session may be published in parallel.
+   * @param liveTable The name of the live table.
+   */
+  public void publishStagedTable(String liveTable) {
+    var stagingTable = StagingSession.stagingName(liveTable);
+    var staged = tableMapperManager.getTableMapping(stagingTable);
+    if (staged == null) {
+      return;
+    }
+    var keyColumns = staged.hasPrimaryKey() ? staged.getKeyColumns() : configuredKeyColumns();
+    var hasKey = keyColumns.stream().allMatch(column -> staged.getColumn(column) != null);
+    if (hasKey) {
+      runDdl("ALTER TABLE " + stagingTable + " ADD PRIMARY KEY (" + String.join(",", keyColumns) + ")");
+    }
+    var partitions = stagedPartitions(stagingTable);
+    if (partitions.isEmpty()) {
+      runDdl("ALTER TABLE " + stagingTable + " SET LOGGED");
+    } else {
+      partitions.forEach(partition -> runDdl("ALTER TABLE " + partition + " SET LOGGED"));
+    }
+    runDdl("ANALYZE " + stagingTable);
+
+    tableMapperManager.updateTableMapping(liveTable, current -> {
+      transactionTemplate.executeWithoutResult(status -> {
+        runDdl("DROP TABLE IF EXISTS " + liveTable);
+        runDdl("ALTER TABLE " + stagingTable + " RENAME TO " + liveTable);
+        if (hasKey) {
+          runDdl("ALTER TABLE " + liveTable + " RENAME CONSTRAINT " + stagingTable + "_pkey TO " + liveTable + "_pkey");
+        }
+        // partitions take the name of the live table, renaming their key index renames its constraint as well
+        partitions.forEach(partition -> {
+          var livePartition = liveTable + partition.substring(stagingTable.length());
+          runDdl("ALTER TABLE " + partition + " RENAME TO " + livePartition);
+          if (hasKey) {
+            runDdl("ALTER INDEX " + partition + "_pkey RENAME TO " + livePartition + "_pkey");
+          }
+        });
+      });
+      sqlTemplateCache.invalidate(liveTable);
+      var published = staged.renamed(liveTable);
+      return published.withKeyColumns(primaryKeyOf(published));
+    });
+    tableMapperManager.removeTableMapping(stagingTable);
+    sqlTemplateCache.invalidate(stagingTable);
+    log.info("Published staged table {}", liveTable);
+  }
+
+  // partitions of a staging table created by createStagingTable
+  private List<String> stagedPartitions(String stagingTable) {
+    var sql = "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?) ORDER BY c.relname";
+    return jdbcClient.sql(sql).param(stagingTable).query(String.class).list();
+  }
+
+  /**
+   * Drops the staging tables of a staged import that did not complete. The live tables are left untouched.
+   * @param session The staged import.
+   */
+  public void abandonStaging(StagingSession session) {
+    session.getLiveTables().stream().map(StagingSession::stagingName).forEach(stagingTable -> {
+      dropTable(stagingTable);
+      tableMapperManager.removeTableMapping(stagingTable);
+      sqlTemplateCache.invalidate(stagingTable);
+    });
+  }
+
+  private void runDdl(String sql) {
+    log.debug(SQL_DEBUG_MESSAGE, sql);
     jdbcClient.sql(sql).update();
+    pipelineMetrics.ddl(sql);
+  }
 
-    return tableMapping;
+  private List<String> configuredKeyColumns() {
+    var keyColumns = new ArrayList<String>();
+    keyColumns.add(mappingConfiguration.getDynamodb().getPartitionKeyName());
+    mappingConfiguration.getDynamodb().getSortKeyName().ifPresent(keyColumns::add);
+    return keyColumns;
+  }
+
+  private List<String> primaryKeyOf(TableMapping tableMapping) {
+    var keyColumns = primaryKeyColumns(tableMapping.getTableName());
+    // unquoted identifiers are folded to lower case by PostgreSQL
+    return tableMapping.getColumns().keySet().stream()
+        .filter(column -> keyColumns.contains(column.toLowerCase()))
+        .toList();
+  }
+
+  private List<String> primaryKeyColumns(String tableName) {
+    var sql = "SELECT a.attname FROM pg_index i JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey)"
+        + " WHERE i.indrelid = to_regclass(?) AND i.indisprimary";
+    return jdbcClient.sql(sql).param(tableName).query(String.class).list();
   }
 
   public void dropTable(String tableName) {
     log.info("dropping table {}", tableName);
-    var sql = "DROP TABLE IF EXISTS " + tableName;
-    log.debug(SQL_DEBUG_MESSAGE, sql);
-    jdbcClient.sql(sql).update();
+    runDdl("DROP TABLE IF EXISTS " + tableName);
+  }
+
+  public Stream<Map<String, ItemAttribute>> loadFromS3(String bucketName, String s3Prefix) {
+    return listExportDataFiles(bucketName).stream()
+        .flatMap(key -> readExportDataFile(bucketName, key));
   }
 
-  @SneakyThrows
-  public Stream<JsonNode> loadFromS3(String bucketName, String s3Prefix) {
+  /**
+   * Lists the data files of the latest export of the configured DynamoDB table, as described by its manifest.
+   * @param exportLocation The bucket or directory holding the export, see {@link ExportSources}.
+   * @return The export data files.
+   */
+  public List<ExportDataFile> listExportDataFiles(String exportLocation) {
     final String s3ExportDataPrefix = mappingConfiguration.getS3().getPrefix().orElse("") + mappingConfiguration.getDynamodb().getDynamoTableName();
-    log.info("loading from s3://{}/{}", bucketName, s3ExportDataPrefix);
-    if (s3Client.listObjectsV2(b -> b.bucket(bucketName).prefix(s3ExportDataPrefix)).contents().isEmpty()) {
-      throw new IllegalArgumentException("No s3 export provided");
+    return listExportDataFiles(exportLocation, s3ExportDataPrefix);
+  }
+
+  /**
+   * Lists the data files of the latest export written under a prefix, as described by its manifest.
+   * @param exportLocation The bucket or directory holding the export, see {@link ExportSources}.
+   * @param prefix The prefix the export was written to.
+   * @return The export data files.
+   */
+  public List<ExportDataFile> listExportDataFiles(String exportLocation, String prefix) {
+    var source = exportSources.resolve(exportLocation);
+    log.info("loading from {}/{}", source.location(), prefix);
+    return exportDiscovery.discover(source, prefix);
+  }
+
+  /**
+   * @param exportLocation The bucket or directory holding the export, see {@link ExportSources}.
+   * @return true if the export is read from the local file system.
+   */
+  public boolean isLocalExport(String exportLocation) {
+    return exportSources.resolve(exportLocation).isLocal();
+  }
+
+  /**
+   * Reads the items of a single export data file. The file is read lazily as the stream is consumed, and the
+   * underlying S3 stream or file is released when the returned stream is closed.
+   * @param exportLocation The bucket or directory holding the export.
+   * @param dataFile The export data file.
+   * @return A stream of the items in the file.
+   */
+  public Stream<Map<String, ItemAttribute>> readExportDataFile(String exportLocation, ExportDataFile dataFile) {
+    return readExportDataFile(exportLocation, dataFile, bytes -> {});
+  }
+
+  /**
+   * Reads the items of a single export data file, reporting the compressed bytes read as the file is consumed.
+   * @param exportLocation The bucket or directory holding the export.
+   * @param dataFile The export data file.
+   * @param bytesRead Called with the number of bytes of every read from the export.
+   * @return A stream of the items in the file.
+   */
+  public Stream<Map<String, ItemAttribute>> readExportDataFile(String exportLocation, ExportDataFile dataFile, LongConsumer bytesRead) {
+    try {
+      return readItems(dataFile, openExportDataFile(exportLocation, dataFile.key(), bytesRead));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
+  }
 
-    var readerBuilder = IonSystemBuilder.standard().getReaderBuilder();
+  /**
+   * Reads the items of an export data file that was downloaded to the local file system.
+   * @param localFile The downloaded, still compressed, data file.
+   * @param dataFile The export data file.
+   * @return A stream of the items in the file.
+   */
+  public Stream<Map<String, ItemAttribute>> readExportDataFile(Path localFile, ExportDataFile dataFile) {
+    try {
+      var in = Files.newInputStream(localFile);
+      try {
+        return readItems(dataFile, new GZIPInputStream(in, readBufferSize()));
+      } catch (IOException e) {
+        in.close();
+        throw e;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Downloads an export data file as is, without inflating it. Large files in S3 are downloaded in concurrent ranges.
+   * @param exportLocation The bucket or directory holding the export.
+   * @param dataFile The export data file.
+   * @param target The local file to write.
+   * @param bytesRead Called with the number of bytes of every read from the export.
+   */
+  public void downloadExportDataFile(String exportLocation, ExportDataFile dataFile, Path target, LongConsumer bytesRead) {
+    exportSources.resolve(exportLocation).download(dataFile.key(), target, bytesRead);
+  }
+
+  /**
+   * Reads the change records of a data file of an incremental export.
+   * @param exportLocation The bucket or directory holding the export.
+   * @param dataFile The export data file.
+   * @return A stream of the changes in the file, upserts for new and updated items and deletes for removed ones.
+   */
+  public Stream<ItemChange> readExportChanges(String exportLocation, ExportDataFile dataFile) {
+    try {
+      var in = openExportDataFile(exportLocation, dataFile.key());
+      ChangeReader reader;
+      try {
+        reader = exportFormatReader(dataFile.format()).openChanges(in);
+      } catch (IOException | RuntimeException e) {
+        in.close();
+        throw e;
+      }
+      return readRecords(dataFile, reader::next, reader::close);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 
-    var ionObjects = s3Client.listObjectsV2(b -> b.bucket(bucketName).prefix(s3ExportDataPrefix))
-        .contents();
+  private Stream<Map<String, ItemAttribute>> readItems(ExportDataFile dataFile, InputStream in) throws IOException {
+    ItemReader reader;
+    try {
+      reader = exportFormatReader(dataFile.format()).open(in);
+    } catch (IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    }
+    return readRecords(dataFile, reader::next, reader::close);
+  }
 
-    return ionObjects.stream()
-        .filter(o -> o.key().endsWith("ion.gz"))
-        .flatMap(o -> {
-          log.debug("Adding to {} to stream", o.key());
-          var inputStream = s3Client.getObjectAsBytes(b -> b.bucket(bucketName).key(o.key())).asInputStream();
-          GZIPInputStream zipStream;
+  private <T> Stream<T> readRecords(ExportDataFile dataFile, RecordSupplier<T> next, Closeable reader) {
+    var key = dataFile.key();
+    log.debug("Adding to {} to stream", key);
+    var decodeTimer = pipelineMetrics.decodeTimer(dataFile.format());
+    return Stream.generate(() -> {
+          try {
+            var start = System.nanoTime();
+            var item = next.get();
+            decodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (item == null) {
+              log.debug("No more values to read for key {}", key);
+            }
+            return item;
+          } catch (IOException e) {
+            // a file that cannot be read to its end fails, rather than ending early as if it were complete
+            throw new UncheckedIOException("Failed to read export data file " + key, e);
+          }
+        })
+        .takeWhile(Objects::nonNull)
+        .onClose(() -> {
           try {
-            zipStream = new GZIPInputStream(inputStream);
+            reader.close();
           } catch (IOException e) {
-            throw new RuntimeException(e);
+            log.warn("Failed to close s3 export on key {}", key, e);
           }
-          var reader = readerBuilder.build(zipStream);
-          return Stream.generate(() -> {
-                try {
-                  if (reader.next() != null) {
-                    var sb = new StringBuilder();
-                    try (var writer = IonTextWriterBuilder.json().build(sb)) {
-                      writer.writeValue(reader);
-                      return objectMapper.readTree(sb.toString()).get("Item");
-                    }
-                  } else {
-                    log.debug("No more values to read for key {}", o.key());
-                    return null;
-                  }
-                } catch (Exception e) {
-                  log.error("Failed to read from s3 export on key {}", o.key(), e);
-                  return null;
-                }
-              })
-              .takeWhile(Objects::nonNull);
         });
+  }
 
+  @FunctionalInterface
+  private interface RecordSupplier<T> {
+
+    T get() throws IOException;
+  }
+
+  private ExportFormatReader exportFormatReader(ExportFormat format) {
+    return exportFormatReaders.stream()
+        .filter(r -> r.format() == format)
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Unsupported export format: " + format));
   }
 
 //  public Stream<JsonNode> loadFromS3(String bucketName, String s3Prefix) {
@@ -295,9 +905,8 @@ public class PostgresManager {
       s3Client.listObjectsV2(b -> b.bucket(bucketName).prefix(s3ExportDataPrefix))
           .contents()
           .forEach(o -> {
-            try (var responseStream = s3Client.getObjectAsBytes(b -> b.bucket(bucketName).key(o.key())).asInputStream();
-                var zipStream = new GZIPInputStream(responseStream);
-                var reader = new BufferedReader(new InputStreamReader(zipStream));
+            try (var zipStream = openExportDataFile(bucketName, o.key());
+                var reader = new BufferedReader(new InputStreamReader(zipStream), readBufferSize());
                 var jsonWriter = IonTextWriterBuilder.json().build(sb);
                 var ionReader = IonSystemBuilder.standard().build().newReader(reader)) {
               while (ionReader.next() != null) {
@@ -318,43 +927,122 @@ public class PostgresManager {
     return Collections.emptyList();
   }
 
-  private Entry<String, Object> extractValue(JsonNode jsonNode, ColumnMapping column) {
-    var value = switch (column.getColumnType()) {
-      case STRING -> jsonNode.get(column.getColumnName()).textValue();
-      case NUMBER -> jsonNode.get(column.getColumnName()).numberValue();
-      case BOOL -> jsonNode.get(column.getColumnName()).booleanValue();
-      case JSON -> jsonNode.get(column.getColumnName()).toString();
+  /**
+   * Opens a streaming, decompressing view of an export data file. Only a fixed size buffer is held on the heap, so
+   * memory use does not depend on the size of the object.
+   */
+  private InputStream openExportDataFile(String exportLocation, String key) throws IOException {
+    return openExportDataFile(exportLocation, key, bytes -> {});
+  }
+
+  private InputStream openExportDataFile(String exportLocation, String key, LongConsumer bytesRead) throws IOException {
+    var in = exportSources.resolve(exportLocation).open(key, bytesRead);
+    try {
+      return new GZIPInputStream(in, readBufferSize());
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  private int readBufferSize() {
+    return (int) mappingConfiguration.getS3().getReadBufferSize().toBytes();
+  }
+
+  static Object extractValue(ItemAttribute attribute, ColumnMapping column) {
+    var columnType = column.getColumnType();
+    if (columnType == ColumnDataType.JSON) {
+      return attribute.toJson();
+    }
+    // values that do not match the type of an existing column are written as null
+    if (!columnType.holds(attribute)) {
+      return null;
+    }
+    return switch (columnType) {
+      case BIGINT -> ((Number) attribute.value()).longValue();
+      case DOUBLE -> ((Number) attribute.value()).doubleValue();
+      case STRING_SET -> new SetValue(ColumnDataType.STRING, (List<?>) attribute.value());
+      case NUMBER_SET -> new SetValue(ColumnDataType.NUMBER, (List<?>) attribute.value());
+      default -> attribute.value();
     };
-    return Map.entry(column.getColumnName(), value);
   }
 
-  private TableMapping maybeAddColumns(TableMapping tableMapping, JsonNode jsonNode) {
-    var newColumns = tableMapperManager.createNewColumns(tableMapping, jsonNode);
+  private TableMapping addColumns(TableMapping current, TableMapping next) {
+    var newColumns = next.columnsAddedSince(current);
+    var widenedColumns = next.columnsWidenedSince(current);
     if (!newColumns.isEmpty()) {
-      addColumnsToTable(tableMapping, newColumns);
-      newColumns.forEach(tableMapping::addColumn);
+      addColumnsToTable(current, newColumns);
     }
-    return tableMapping;
+    if (!widenedColumns.isEmpty()) {
+      widenColumns(current, widenedColumns);
+    }
+    if (!newColumns.isEmpty() || !widenedColumns.isEmpty()) {
+      sqlTemplateCache.invalidate(current.getTableName());
+    }
+    return next;
   }
 
-  private void addColumnsToTable(TableMapping tableMapping, Set<ColumnMapping> newColumns) {
-    newColumns.forEach(columnMapping -> {
-      log.info("Adding {} to {}", columnMapping, tableMapping.getTableName());
-      var sql = "ALTER TABLE " + tableMapping.getTableName() + " ADD COLUMN " + columnMapping.getColumnName() + " " + columnMapping.getColumnType().getDatabaseType();
-      log.debug(SQL_DEBUG_MESSAGE, sql);
-      jdbcClient.sql(sql).update();
-    });
+  /**
+   * Changes the type of number columns that received a value they cannot hold exactly. The table is rewritten, which
+   * is cheap while it is still small, and numbers rarely change type once a table is large.
+   */
+  private void widenColumns(TableMapping tableMapping, List<ColumnMapping> widenedColumns) {
+    log.info("Widening {} of {}", widenedColumns, tableMapping.getTableName());
+    var sql = "ALTER TABLE " + tableMapping.getTableName() + widenedColumns.stream()
+        .map(columnMapping -> " ALTER COLUMN " + columnMapping.getColumnName() + " TYPE " + columnMapping.getColumnType().getDatabaseType())
+        .collect(Collectors.joining(","));
+    runDdl(sql);
+  }
+
+  private void addColumnsToTable(TableMapping tableMapping, List<ColumnMapping> newColumns) {
+    log.info("Adding {} to {}", newColumns, tableMapping.getTableName());
+    // a single statement takes the table lock once for all of the new columns
+    var sql = "ALTER TABLE " + tableMapping.getTableName() + newColumns.stream()
+        .map(columnMapping -> " ADD COLUMN IF NOT EXISTS " + columnMapping.getColumnName() + " " + columnMapping.getColumnType().getDatabaseType())
+        .collect(Collectors.joining(","));
+    runDdl(sql);
   }
 
   private ApplyType convertToApplyType(String eventType) {
     return switch (eventType) {
-      case "INSERT" -> ApplyType.INSERT;
-      case "MODIFY" -> ApplyType.UPDATE;
+      // stream records may be delivered more than once, so inserts replace any existing row as well
+      case "INSERT", "MODIFY" -> ApplyType.UPDATE;
       case "REMOVE" -> ApplyType.DELETE;
       default -> throw new IllegalArgumentException("Unsupported apply type: " + eventType);
     };
   }
 
+  /**
+   * Writes every row immediately with its own INSERT statement. A statement that fails is thrown.
+   */
+  private class DirectRowWriter implements RowWriter {
+
+    @Override
+    public void insert(TableMapping tableMapping, Map<String, Object> columns) {
+      insertData(columns, tableMapping);
+    }
+
+    @Override
+    public void upsert(TableMapping tableMapping, Map<String, Object> columns) {
+      upsertData(columns, tableMapping);
+    }
+
+    @Override
+    public void flush(String tableName) {
+      // nothing is buffered
+    }
+
+    @Override
+    public void flush() {
+      // nothing is buffered
+    }
+
+    @Override
+    public void close() {
+      // the direct writer is shared and holds no resources
+    }
+  }
+
   public enum ApplyType {
     INSERT,
     UPDATE,
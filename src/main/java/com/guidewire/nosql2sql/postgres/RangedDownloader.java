@@ -0,0 +1,150 @@
+package com.guidewire.nosql2sql.postgres;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Downloads S3 objects to local files. Objects above the configured threshold are split into byte ranges that are
+ * fetched concurrently, each straight into its region of the memory-mapped target file, since a single GET stream
+ * limits the throughput of multi GB export data files.
+ * <p>
+ * A download stops at its next read once the downloading thread is interrupted, and cancels the ranges it has not
+ * fetched yet.
+ */
+@Slf4j
+@Component
+public class RangedDownloader {
+
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  private final S3Client s3Client;
+  private final MappingConfiguration mappingConfiguration;
+  private final ExecutorService rangeExecutor;
+
+  public RangedDownloader(S3Client s3Client, MappingConfiguration mappingConfiguration) {
+    this.s3Client = s3Client;
+    this.mappingConfiguration = mappingConfiguration;
+    this.rangeExecutor = Executors.newFixedThreadPool(Math.max(1, mappingConfiguration.getS3().getRangeConcurrency()),
+        new CustomizableThreadFactory("s3-range-"));
+  }
+
+  /**
+   * Downloads an object as is.
+   * @param bucketName The bucket holding the object.
+   * @param key The key of the object.
+   * @param target The local file to write, replaced if it exists.
+   * @param bytesRead Called with the number of bytes of every read from S3.
+   * @throws CancellationException if the downloading thread was interrupted.
+   */
+  public void download(String bucketName, String key, Path target, LongConsumer bytesRead) {
+    var s3 = mappingConfiguration.getS3();
+    var head = s3Client.headObject(b -> b.bucket(bucketName).key(key));
+    var size = head.contentLength();
+    var rangeSize = s3.getRangeSize().toBytes();
+    if (s3.getRangeConcurrency() <= 1 || size < s3.getRangedDownloadThreshold().toBytes() || size <= rangeSize) {
+      downloadStream(bucketName, key, target, bytesRead);
+      return;
+    }
+
+    log.debug("Downloading {} bytes of {} in ranges of {} bytes", size, key, rangeSize);
+    try (var channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      var completion = new ExecutorCompletionService<Void>(rangeExecutor);
+      var ranges = new ArrayList<Future<Void>>();
+      for (long start = 0; start < size; start += rangeSize) {
+        var rangeStart = start;
+        var rangeLength = Math.min(rangeSize, size - start);
+        ranges.add(completion.submit(() -> downloadRange(bucketName, key, head.eTag(), channel, rangeStart, rangeLength, bytesRead), null));
+      }
+      awaitRanges(completion, ranges, key);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Waits for every range in the order they finish, so the first range that fails stops the download. The other
+   * ranges are cancelled when the download fails or the waiting thread is interrupted. Ranges still running write
+   * into their mapped region, which stays valid after the file is closed.
+   */
+  private static void awaitRanges(ExecutorCompletionService<Void> completion, List<Future<Void>> ranges, String key) {
+    try {
+      for (int i = 0; i < ranges.size(); i++) {
+        completion.take().get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Download of " + key + " was interrupted");
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+    } finally {
+      ranges.forEach(range -> range.cancel(true));
+    }
+  }
+
+  private void downloadStream(String bucketName, String key, Path target, LongConsumer bytesRead) {
+    try (var in = s3Client.getObject(b -> b.bucket(bucketName).key(key));
+        var out = Files.newOutputStream(target)) {
+      var buffer = new byte[COPY_BUFFER_SIZE];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        checkInterrupted(key);
+        out.write(buffer, 0, read);
+        bytesRead.accept(read);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void downloadRange(String bucketName, String key, String eTag, FileChannel channel, long start, long length,
+      LongConsumer bytesRead) {
+    // the ETag guards against the object being replaced between two ranges
+    try (var in = s3Client.getObject(b -> b.bucket(bucketName).key(key).ifMatch(eTag)
+        .range("bytes=" + start + "-" + (start + length - 1)))) {
+      var region = channel.map(MapMode.READ_WRITE, start, length);
+      var buffer = new byte[COPY_BUFFER_SIZE];
+      int read;
+      while (region.hasRemaining() && (read = in.read(buffer, 0, Math.min(buffer.length, region.remaining()))) != -1) {
+        checkInterrupted(key);
+        region.put(buffer, 0, read);
+        bytesRead.accept(read);
+      }
+      if (region.hasRemaining()) {
+        throw new IOException("Range " + start + "-" + (start + length - 1) + " of " + key + " ended early");
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void checkInterrupted(String key) {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Download of " + key + " was interrupted");
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    rangeExecutor.shutdownNow();
+  }
+}
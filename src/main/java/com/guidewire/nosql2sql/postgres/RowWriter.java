@@ -0,0 +1,54 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.util.Map;
+
+/**
+ * Writes rows into PostgreSQL tables. Implementations may buffer rows and send them in bulk, so callers must flush
+ * pending rows before running statements that depend on them, and close the writer when they are done.
+ * Writers are not thread safe; each thread applying rows should use its own writer.
+ */
+public interface RowWriter extends AutoCloseable {
+
+  /**
+   * Inserts a row, or buffers it to be inserted later.
+   * @param tableMapping The mapping of the table the row belongs to.
+   * @param columns A map of column names and values.
+   * @throws IllegalStateException if the row, or rows sent to make room for it, could not be written.
+   */
+  void insert(TableMapping tableMapping, Map<String, Object> columns);
+
+  /**
+   * Inserts a row, or replaces the row with the same primary key, now or later. Changes to the same row are applied in
+   * the order they were written.
+   * @param tableMapping The mapping of the table the row belongs to, which must have a primary key.
+   * @param columns A map of column names and values.
+   * @throws IllegalStateException if the row, or rows sent to make room for it, could not be written.
+   */
+  void upsert(TableMapping tableMapping, Map<String, Object> columns);
+
+  /**
+   * Sends all buffered rows of a single table.
+   * @param tableName The name of the table.
+   * @throws IllegalStateException if the rows could not be written.
+   */
+  void flush(String tableName);
+
+  /**
+   * Sends all buffered rows.
+   * @throws IllegalStateException if the rows could not be written.
+   */
+  void flush();
+
+  /**
+   * Sends rows that have been buffered for longer than the maximum latency of the writer.
+   */
+  default void flushExpired() {
+    // only time-based writers need to do anything
+  }
+
+  /**
+   * Sends all buffered rows and releases any resources held by the writer.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,110 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.LongConsumer;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Reads exports from an S3 bucket.
+ */
+class S3ExportSource implements ExportSource {
+
+  private final String bucketName;
+  private final S3Client s3Client;
+  private final RangedDownloader rangedDownloader;
+  private final PipelineMetrics pipelineMetrics;
+
+  S3ExportSource(String bucketName, S3Client s3Client, RangedDownloader rangedDownloader, PipelineMetrics pipelineMetrics) {
+    this.bucketName = bucketName;
+    this.s3Client = s3Client;
+    this.rangedDownloader = rangedDownloader;
+    this.pipelineMetrics = pipelineMetrics;
+  }
+
+  @Override
+  public String location() {
+    return "s3://" + bucketName;
+  }
+
+  @Override
+  public List<ExportObject> list(String prefix) {
+    // the paginator requests further pages lazily, so exports of any number of objects are listed in full
+    return s3Client.listObjectsV2Paginator(b -> b.bucket(bucketName).prefix(prefix)).contents().stream()
+        .map(o -> new ExportObject(o.key(), o.size(), o.lastModified()))
+        .toList();
+  }
+
+  @Override
+  public InputStream open(String key, LongConsumer bytesRead) {
+    pipelineMetrics.s3ObjectRead();
+    return new AbortOnEarlyClose(s3Client.getObject(b -> b.bucket(bucketName).key(key)), countingBytes(bytesRead));
+  }
+
+  @Override
+  public void download(String key, Path target, LongConsumer bytesRead) {
+    pipelineMetrics.s3ObjectRead();
+    rangedDownloader.download(bucketName, key, target, countingBytes(bytesRead));
+  }
+
+  @Override
+  public boolean isLocal() {
+    return false;
+  }
+
+  private LongConsumer countingBytes(LongConsumer bytesRead) {
+    return bytes -> {
+      pipelineMetrics.s3BytesRead(bytes);
+      bytesRead.accept(bytes);
+    };
+  }
+
+  /**
+   * Aborts the S3 connection instead of draining it when an object is closed before it was fully read, e.g. after
+   * sampling the first items for schema inference. Also counts the bytes read from S3.
+   */
+  private static class AbortOnEarlyClose extends FilterInputStream {
+
+    private final ResponseInputStream<?> responseStream;
+    private final LongConsumer bytesRead;
+    private boolean endOfStream;
+
+    AbortOnEarlyClose(ResponseInputStream<?> responseStream, LongConsumer bytesRead) {
+      super(responseStream);
+      this.responseStream = responseStream;
+      this.bytesRead = bytesRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+      var b = super.read();
+      endOfStream = b == -1;
+      if (!endOfStream) {
+        bytesRead.accept(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      var read = super.read(buffer, offset, length);
+      endOfStream = read == -1;
+      if (read > 0) {
+        bytesRead.accept(read);
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!endOfStream) {
+        responseStream.abort();
+      }
+      super.close();
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The value of a string set or number set column. Statements and text COPY bind it as a PostgreSQL array literal,
+ * binary COPY encodes its elements.
+ * @param elementType The type of the elements, {@link ColumnDataType#STRING} or {@link ColumnDataType#NUMBER}.
+ * @param elements The elements of the set.
+ */
+public record SetValue(ColumnDataType elementType, List<?> elements) {
+
+  /**
+   * @return The array literal, such as {@code {"a","b"}} or {@code {1,2.5}}.
+   */
+  @Override
+  public String toString() {
+    return elements.stream()
+        .map(element -> element instanceof BigDecimal decimal ? decimal.toPlainString()
+            : element instanceof Number number ? number.toString()
+            : quote(element.toString()))
+        .collect(Collectors.joining(",", "{", "}"));
+  }
+
+  private static String quote(String element) {
+    return '"' + element.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+  }
+}
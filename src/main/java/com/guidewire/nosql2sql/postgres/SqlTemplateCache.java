@@ -0,0 +1,138 @@
+package com.guidewire.nosql2sql.postgres;
+
+import com.guidewire.nosql2sql.postgres.TableMapping.ColumnMapping;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches the SQL of the statements used to write rows, keyed by table and ordered column set.
+ * Templates use positional bind variables, so the text of a statement is identical for every row of the same shape.
+ * That lets the JDBC driver reuse its server side prepared statement on each connection instead of parsing the
+ * statement again. Entries of a table are invalidated whenever the shape of the table changes.
+ */
+@Slf4j
+public class SqlTemplateCache {
+
+  private final Map<Key, InsertTemplate> inserts = new ConcurrentHashMap<>();
+  private final Map<Key, InsertTemplate> upserts = new ConcurrentHashMap<>();
+  private final Map<Key, DeleteTemplate> deletes = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the insert template for a set of columns.
+   * @param tableMapping The mapping of the target table.
+   * @param columns The columns in the order their values are bound.
+   * @return The cached template.
+   */
+  public InsertTemplate insert(TableMapping tableMapping, Collection<String> columns) {
+    return inserts.computeIfAbsent(new Key(tableMapping.getTableName(), List.copyOf(columns)), key -> insertTemplate(tableMapping, key, ""));
+  }
+
+  /**
+   * Returns the template inserting a row, or replacing the row with the same primary key. Mapped columns that are not
+   * in the column set are set to NULL on the replaced row, so the row always matches the latest image of the item.
+   * @param tableMapping The mapping of the target table, which must have a primary key.
+   * @param columns The columns in the order their values are bound.
+   * @return The cached template.
+   */
+  public InsertTemplate upsert(TableMapping tableMapping, Collection<String> columns) {
+    return upserts.computeIfAbsent(new Key(tableMapping.getTableName(), List.copyOf(columns)), key -> {
+      var keyColumns = tableMapping.getKeyColumns();
+      var assignments = tableMapping.getColumns().keySet().stream()
+          .filter(c -> !keyColumns.contains(c))
+          .map(c -> c + " = " + (key.columns().contains(c) ? "EXCLUDED." + c : "NULL"))
+          .collect(Collectors.joining(","));
+      var conflict = " ON CONFLICT (" + String.join(",", keyColumns) + ") DO "
+          + (assignments.isEmpty() ? "NOTHING" : "UPDATE SET " + assignments);
+      return insertTemplate(tableMapping, key, conflict);
+    });
+  }
+
+  private static InsertTemplate insertTemplate(TableMapping tableMapping, Key key, String suffix) {
+    var types = key.columns().stream().map(c -> tableMapping.getColumn(c).getColumnType()).toList();
+    var valuesGroup = types.stream()
+        .map(ColumnDataType::placeholder)
+        .collect(Collectors.joining(",", "(", ")"));
+    var prefix = "INSERT INTO " + key.tableName() + " (" + String.join(",", key.columns()) + ") VALUES ";
+    return new InsertTemplate(prefix, valuesGroup, suffix, argTypes(types));
+  }
+
+  /**
+   * Returns the template deleting the rows matching a unique key.
+   * @param tableMapping The mapping of the target table.
+   * @param keyColumns The columns of the unique key in the order their values are bound.
+   * @return The cached template.
+   */
+  public DeleteTemplate delete(TableMapping tableMapping, List<String> keyColumns) {
+    return deletes.computeIfAbsent(new Key(tableMapping.getTableName(), List.copyOf(keyColumns)), key -> {
+      var types = key.columns().stream()
+          .map(c -> Optional.ofNullable(tableMapping.getColumn(c)).map(ColumnMapping::getColumnType).orElse(ColumnDataType.STRING))
+          .toList();
+      var where = key.columns().stream().map(c -> c + " = ?").collect(Collectors.joining(" AND "));
+      return new DeleteTemplate("DELETE FROM " + key.tableName() + " WHERE " + where, argTypes(types));
+    });
+  }
+
+  /**
+   * Drops every template of a table and of its partitions. Called whenever columns are added to the table or the table
+   * is recreated.
+   * @param tableName The name of the table.
+   */
+  public void invalidate(String tableName) {
+    log.debug("Invalidating statement templates of {}", tableName);
+    var partition = Pattern.compile(Pattern.quote(tableName + TableMapping.PARTITION_SEPARATOR) + "\\d+");
+    Predicate<Key> ofTable = key -> key.tableName().equals(tableName) || partition.matcher(key.tableName()).matches();
+    inserts.keySet().removeIf(ofTable);
+    upserts.keySet().removeIf(ofTable);
+    deletes.keySet().removeIf(ofTable);
+  }
+
+  private static int[] argTypes(List<ColumnDataType> types) {
+    return types.stream().mapToInt(ColumnDataType::getSqlType).toArray();
+  }
+
+  private record Key(String tableName, List<String> columns) {
+
+  }
+
+  /**
+   * An INSERT statement for one shape of row.
+   * @param prefix The statement up to and including {@code VALUES}.
+   * @param valuesGroup The bind variables of a single row.
+   * @param suffix The {@code ON CONFLICT} clause of an upsert, empty for a plain insert.
+   * @param argTypes The SQL types of the bind variables of a single row.
+   */
+  public record InsertTemplate(String prefix, String valuesGroup, String suffix, int[] argTypes) {
+
+    /**
+     * @return The statement inserting a single row.
+     */
+    public String sql() {
+      return prefix + valuesGroup + suffix;
+    }
+
+    /**
+     * @param rowCount The number of rows inserted by the statement.
+     * @return The statement inserting several rows with a single VALUES list.
+     */
+    public String sql(int rowCount) {
+      return prefix + String.join(",", Collections.nCopies(rowCount, valuesGroup)) + suffix;
+    }
+  }
+
+  /**
+   * A DELETE statement matching a unique key.
+   * @param sql The statement.
+   * @param argTypes The SQL types of the key columns.
+   */
+  public record DeleteTemplate(String sql, int[] argTypes) {
+
+  }
+}
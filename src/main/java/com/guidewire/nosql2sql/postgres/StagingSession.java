@@ -0,0 +1,40 @@
+package com.guidewire.nosql2sql.postgres;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the tables loaded by a staged import. Items are written into an unlogged staging table next to each live
+ * table, and the staging tables replace the live tables once the whole export has been loaded.
+ */
+public class StagingSession {
+
+  private static final String STAGING_SUFFIX = "__staging";
+
+  private final Set<String> liveTables = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Returns the staging table of a live table, and records that the live table is loaded by this session.
+   * @param liveTable The name of the live table.
+   * @return The name of the staging table.
+   */
+  public String stagingTableOf(String liveTable) {
+    liveTables.add(liveTable);
+    return stagingName(liveTable);
+  }
+
+  /**
+   * @return The live tables loaded by this session.
+   */
+  public Set<String> getLiveTables() {
+    return Set.copyOf(liveTables);
+  }
+
+  static String stagingName(String liveTable) {
+    return liveTable + STAGING_SUFFIX;
+  }
+
+  static boolean isStagingTable(String tableName) {
+    return tableName.endsWith(STAGING_SUFFIX);
+  }
+}
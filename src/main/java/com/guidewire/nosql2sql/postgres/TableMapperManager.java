@@ -2,12 +2,16 @@ package com.guidewire.nosql2sql.postgres;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.guidewire.nosql2sql.postgres.TableMapping.ColumnMapping;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -21,7 +25,8 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class TableMapperManager {
 
-  private final Map<String, TableMapping> tableMaps = new HashMap<>();
+  private final Map<String, TableMapping> tableMaps = new ConcurrentHashMap<>();
+  private final Map<String, Lock> tableLocks = new ConcurrentHashMap<>();
 
   /**
    * Escapes the table name to ensure it is valid in PostgreSQL.
@@ -43,7 +48,15 @@ public class TableMapperManager {
   }
 
   /**
-   * Retrieves a table mapping by table name.
+   * Removes the mapping of a table that no longer exists.
+   * @param tableName The name of the table.
+   */
+  public void removeTableMapping(String tableName) {
+    tableMaps.remove(tableName);
+  }
+
+  /**
+   * Retrieves the latest published mapping of a table. Never blocks, even while the table is being updated.
    * @param tableName The name of the table.
    * @return The table mapping, or null if not found.
    */
@@ -52,40 +65,70 @@ public class TableMapperManager {
   }
 
   /**
-   * Creates new columns for a table mapping based on a JSON node.
+   * Updates the mapping of a table. Only one thread at a time runs the update for a given table, so the DDL behind a
+   * new mapping runs once; threads that were waiting see the published mapping and usually have nothing left to do.
+   * Readers are never blocked and keep using the previous snapshot until the new one is published.
+   * @param tableName The name of the table.
+   * @param update Computes the next mapping from the current one (null if the table is not mapped yet). It runs any
+   *               DDL the new mapping needs before returning it.
+   * @return The published table mapping.
+   */
+  public TableMapping updateTableMapping(String tableName, UnaryOperator<TableMapping> update) {
+    var lock = tableLocks.computeIfAbsent(tableName, name -> new ReentrantLock());
+    lock.lock();
+    try {
+      var current = tableMaps.get(tableName);
+      var next = update.apply(current);
+      if (next != current) {
+        tableMaps.put(tableName, next);
+      }
+      return next;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Checks whether every attribute of an item is already known to a table mapping, with a type that holds its value.
    * @param tableMapping The table mapping.
-   * @param jsonNode The JSON node containing the data.
-   * @return A set of new column mappings.
+   * @param item The attributes of the item.
+   * @return true if the item does not need any new or wider column.
    */
-  public Set<ColumnMapping> createNewColumns(TableMapping tableMapping, JsonNode jsonNode) {
-    Set<ColumnMapping> result = new HashSet<>();
-    var unsupported = withAttributeNames(jsonNode, tableMapping.getUnsupportedColumns(), jsonNodeEntry -> {
-      if (!tableMapping.hasColumn(jsonNodeEntry.getKey())) {
-        result.add(ColumnMapping.builder()
-            .columnName(jsonNodeEntry.getKey())
-            .columnType(determineColumnDataType(jsonNodeEntry.getValue()))
-            .build());
+  public boolean isMapped(TableMapping tableMapping, Map<String, ItemAttribute> item) {
+    for (var attribute : item.entrySet()) {
+      var column = tableMapping.getColumn(attribute.getKey());
+      if (column == null ? !tableMapping.hasColumn(attribute.getKey()) : column.getColumnType().widenFor(attribute.getValue()) != column.getColumnType()) {
+        return false;
       }
-    });
-    unsupported.forEach(tableMapping::addUnsupportedColumn);
-    return result;
+    }
+    return true;
   }
 
   /**
-   * Determines the column data type based on the JSON node value.
-   *
-   * @param value the JSON node value
-   * @return the column data type
-   * @throws IllegalArgumentException if the JSON node type is unsupported
+   * Extends a table mapping with the attributes of an item it does not know yet, and widens the number columns that
+   * cannot hold the values of the item.
+   * @param tableMapping The table mapping.
+   * @param item The attributes of the item.
+   * @return The extended table mapping, or the given mapping if the item needs no new or wider column.
    */
-  private ColumnDataType determineColumnDataType(JsonNode value) {
-    return switch (value.getNodeType()) {
-      case BOOLEAN -> ColumnDataType.BOOL;
-      case NUMBER -> ColumnDataType.NUMBER;
-      case STRING -> ColumnDataType.STRING;
-      case OBJECT -> ColumnDataType.JSON;
-      default -> throw new IllegalArgumentException("Unsupported type " + value.getNodeType());
-    };
+  public TableMapping extend(TableMapping tableMapping, Map<String, ItemAttribute> item) {
+    var newColumns = new ArrayList<ColumnMapping>();
+    var widenedColumns = new ArrayList<ColumnMapping>();
+    var unsupported = withAttributeNames(item, tableMapping.getUnsupportedColumns(), attribute -> {
+      var column = tableMapping.getColumn(attribute.getKey());
+      if (column == null) {
+        newColumns.add(ColumnMapping.builder()
+            .columnName(attribute.getKey())
+            .columnType(attribute.getValue().type())
+            .build());
+      } else if (column.getColumnType().widenFor(attribute.getValue()) != column.getColumnType()) {
+        widenedColumns.add(ColumnMapping.builder()
+            .columnName(attribute.getKey())
+            .columnType(column.getColumnType().widenFor(attribute.getValue()))
+            .build());
+      }
+    });
+    return tableMapping.withColumns(newColumns, unsupported).withColumnTypes(widenedColumns);
   }
 
   /**
@@ -96,42 +139,37 @@ public class TableMapperManager {
    * @return the table mapping
    */
   public TableMapping map(JsonNode json, String tableName) {
-    var mapping = new TableMapping(tableName);
-    var unsupported = withAttributeNames(json, Set.of(), jsonNodeEntry -> {
-      var columnDataType = switch (jsonNodeEntry.getValue().getNodeType()) {
-        case BOOLEAN -> ColumnDataType.BOOL;
-        case NUMBER -> ColumnDataType.NUMBER;
-        case STRING -> ColumnDataType.STRING;
-        case OBJECT -> ColumnDataType.JSON;
-        default -> throw new IllegalArgumentException("Unsupported type " + jsonNodeEntry.getValue().getNodeType());
-      };
-      mapping.addColumn(
-          ColumnMapping.builder()
-              .columnName(jsonNodeEntry.getKey())
-              .columnType(columnDataType)
-              .build());
-    });
-    unsupported.forEach(mapping::addUnsupportedColumn);
-    return mapping;
+    return map(ItemAttribute.itemFromJson(json), tableName);
   }
 
   /**
-   * Processes JSON node attributes with the provided consumer, ignoring specified attributes.
+   * Maps the attributes of an item to a table mapping.
    *
-   * @param json the JSON node containing data
+   * @param item the attributes of the item
+   * @param tableName the name of the table
+   * @return the table mapping
+   */
+  public TableMapping map(Map<String, ItemAttribute> item, String tableName) {
+    return extend(new TableMapping(tableName), item);
+  }
+
+  /**
+   * Processes item attributes with the provided consumer, ignoring specified attributes.
+   *
+   * @param item the attributes of the item
    * @param ignored a set of attribute names to ignore
-   * @param consumer the consumer to process each attribute
+   * @param consumer the consumer to process each supported attribute
    * @return a set of unsupported attribute names
    */
-  public Set<String> withAttributeNames(JsonNode json, Set<String> ignored, Consumer<Entry<String, JsonNode>> consumer) {
+  public Set<String> withAttributeNames(Map<String, ItemAttribute> item, Set<String> ignored, Consumer<Entry<String, ItemAttribute>> consumer) {
     var unsupportedAttributeNames = new HashSet<String>();
-    json.fields().forEachRemaining(jsonNodeEntry -> {
-      if (!ignored.contains(jsonNodeEntry.getKey())) {
-        if (jsonNodeEntry.getValue().isArray()) {
-          log.warn("Skipping unsupported value type attribute: {} type: {}", jsonNodeEntry.getKey(), jsonNodeEntry.getValue().getNodeType().name());
-          unsupportedAttributeNames.add(jsonNodeEntry.getKey());
+    item.entrySet().forEach(attribute -> {
+      if (!ignored.contains(attribute.getKey())) {
+        if (!attribute.getValue().isSupported()) {
+          log.warn("Skipping unsupported value type attribute: {} type: {}", attribute.getKey(), attribute.getValue().value().getClass().getSimpleName());
+          unsupportedAttributeNames.add(attribute.getKey());
         } else {
-          consumer.accept(jsonNodeEntry);
+          consumer.accept(attribute);
         }
       }
     });
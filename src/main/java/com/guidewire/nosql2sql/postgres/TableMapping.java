@@ -1,7 +1,10 @@
 package com.guidewire.nosql2sql.postgres;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import lombok.Builder;
@@ -11,37 +14,170 @@ import lombok.ToString;
 /**
  * Represents a mapping of a DynamoDB table to a PostgreSQL table.
  * This class holds the column mappings and unsupported columns for a table.
+ * <p>
+ * Mappings are immutable snapshots: adding columns returns a new mapping, so a mapping can be read from any thread
+ * without locking while a newer one is being published.
  */
 @Getter
 @ToString
 public class TableMapping {
 
+  static final String PARTITION_SEPARATOR = "$p";
+
   private final String tableName;
-  private final Map<String, ColumnMapping> columns = new HashMap<>();
-  private final Set<String> unsupportedColumns = new HashSet<>();
+  private final Map<String, ColumnMapping> columns;
+  private final Set<String> unsupportedColumns;
+  /**
+   * Columns of the primary key of the table, empty if the table has none
+   */
+  private final List<String> keyColumns;
+  /**
+   * Column the table is hash partitioned by, null if the table is not partitioned
+   */
+  private final String partitionColumn;
+  /**
+   * Number of hash partitions of the table, 0 if the table is not partitioned
+   */
+  private final int partitions;
 
   /**
    * Constructs a new table mapping with the specified table name.
    * @param tableName The name of the table.
    */
   public TableMapping(String tableName) {
+    this(tableName, Map.of(), Set.of(), List.of(), null, 0);
+  }
+
+  private TableMapping(String tableName, Map<String, ColumnMapping> columns, Set<String> unsupportedColumns, List<String> keyColumns,
+      String partitionColumn, int partitions) {
     this.tableName = tableName;
+    this.columns = columns;
+    this.unsupportedColumns = unsupportedColumns;
+    this.keyColumns = keyColumns;
+    this.partitionColumn = partitionColumn;
+    this.partitions = partitions;
   }
 
   /**
-   * Adds a column mapping to the table mapping.
-   * @param columnMapping The column mapping to add.
+   * @param tableName The name of a hash partitioned table.
+   * @param remainder The remainder of the partition.
+   * @return The name of the partition, such as {@code customer$p0}. Child tables never contain a {@code $}, so a
+   *     partition cannot clash with the child table of an attribute.
    */
-  public void addColumn(ColumnMapping columnMapping) {
-    columns.put(columnMapping.getColumnName(), columnMapping);
+  public static String partitionName(String tableName, int remainder) {
+    return tableName + PARTITION_SEPARATOR + remainder;
   }
 
   /**
-   * Adds an unsupported column to the table mapping.
-   * @param columnName The name of the unsupported column.
+   * Returns a copy of this mapping for a table that was renamed.
+   * @param newTableName The new name of the table.
+   * @return The new table mapping.
    */
-  public void addUnsupportedColumn(String columnName) {
-    unsupportedColumns.add(columnName);
+  public TableMapping renamed(String newTableName) {
+    return new TableMapping(newTableName, columns, unsupportedColumns, keyColumns, partitionColumn, partitions);
+  }
+
+  /**
+   * Returns a copy of this mapping with the given primary key.
+   * @param keyColumns The columns of the primary key of the table.
+   * @return The new table mapping.
+   */
+  public TableMapping withKeyColumns(List<String> keyColumns) {
+    return new TableMapping(tableName, columns, unsupportedColumns, List.copyOf(keyColumns), partitionColumn, partitions);
+  }
+
+  /**
+   * Returns a copy of this mapping for a table hash partitioned by the given column.
+   * @param partitionColumn The column the table is partitioned by, or null if the table is not partitioned.
+   * @param partitions The number of partitions.
+   * @return The new table mapping.
+   */
+  public TableMapping withPartitions(String partitionColumn, int partitions) {
+    return new TableMapping(tableName, columns, unsupportedColumns, keyColumns, partitionColumn, partitionColumn == null ? 0 : partitions);
+  }
+
+  /**
+   * Returns the mapping of one partition of this table. Rows written to it must belong to the partition.
+   * @param remainder The remainder of the partition.
+   * @return The mapping of the partition, which is not partitioned itself.
+   */
+  public TableMapping partition(int remainder) {
+    return new TableMapping(partitionName(tableName, remainder), columns, unsupportedColumns, keyColumns, null, 0);
+  }
+
+  /**
+   * Returns a copy of this mapping with the given columns added.
+   * @param newColumns The column mappings to add.
+   * @param newUnsupportedColumns The names of the unsupported columns to add.
+   * @return The new table mapping, or this mapping if nothing was added.
+   */
+  public TableMapping withColumns(Collection<ColumnMapping> newColumns, Collection<String> newUnsupportedColumns) {
+    if (newColumns.isEmpty() && newUnsupportedColumns.isEmpty()) {
+      return this;
+    }
+    var nextColumns = new LinkedHashMap<>(columns);
+    newColumns.forEach(column -> nextColumns.putIfAbsent(column.getColumnName(), column));
+    var nextUnsupported = new LinkedHashSet<>(unsupportedColumns);
+    newUnsupportedColumns.stream()
+        .filter(column -> !nextColumns.containsKey(column))
+        .forEach(nextUnsupported::add);
+    return new TableMapping(tableName, Collections.unmodifiableMap(nextColumns), Collections.unmodifiableSet(nextUnsupported), keyColumns,
+        partitionColumn, partitions);
+  }
+
+  /**
+   * Returns a copy of this mapping with the type of existing columns changed.
+   * @param widenedColumns The columns with their new type.
+   * @return The new table mapping, or this mapping if no type changed.
+   */
+  public TableMapping withColumnTypes(Collection<ColumnMapping> widenedColumns) {
+    if (widenedColumns.isEmpty()) {
+      return this;
+    }
+    var nextColumns = new LinkedHashMap<>(columns);
+    widenedColumns.forEach(column -> nextColumns.replace(column.getColumnName(), column));
+    return new TableMapping(tableName, Collections.unmodifiableMap(nextColumns), unsupportedColumns, keyColumns, partitionColumn, partitions);
+  }
+
+  /**
+   * Adds the columns of another mapping of the same table that are not known to this mapping yet, and widens the
+   * columns both mappings have to hold the values of either.
+   * @param other The mapping to merge in.
+   * @return The merged table mapping.
+   */
+  public TableMapping merge(TableMapping other) {
+    var widened = other.getColumns().values().stream()
+        .filter(column -> getColumn(column.getColumnName()) != null)
+        .map(column -> {
+          var type = getColumn(column.getColumnName()).getColumnType();
+          return ColumnMapping.builder().columnName(column.getColumnName()).columnType(type.widen(column.getColumnType())).build();
+        })
+        .filter(column -> column.getColumnType() != getColumn(column.getColumnName()).getColumnType())
+        .toList();
+    return withColumns(other.getColumns().values(), other.getUnsupportedColumns()).withColumnTypes(widened);
+  }
+
+  /**
+   * Lists the columns of this mapping that an earlier snapshot of the same table does not have.
+   * @param previous The earlier snapshot, or null if the table was not mapped before.
+   * @return The added column mappings.
+   */
+  public List<ColumnMapping> columnsAddedSince(TableMapping previous) {
+    return columns.values().stream()
+        .filter(column -> previous == null || previous.getColumn(column.getColumnName()) == null)
+        .toList();
+  }
+
+  /**
+   * Lists the columns of this mapping whose type differs from an earlier snapshot of the same table.
+   * @param previous The earlier snapshot.
+   * @return The column mappings with their new type.
+   */
+  public List<ColumnMapping> columnsWidenedSince(TableMapping previous) {
+    return columns.values().stream()
+        .filter(column -> previous.getColumn(column.getColumnName()) != null
+            && previous.getColumn(column.getColumnName()).getColumnType() != column.getColumnType())
+        .toList();
   }
 
   public ColumnMapping getColumn(String columnName) {
@@ -52,6 +188,14 @@ public class TableMapping {
     return columns.containsKey(columnName) || unsupportedColumns.contains(columnName);
   }
 
+  public boolean hasPrimaryKey() {
+    return !keyColumns.isEmpty();
+  }
+
+  public boolean isPartitioned() {
+    return partitions > 0;
+  }
+
   @Builder
   @Getter
   @ToString
@@ -0,0 +1,83 @@
+package com.guidewire.nosql2sql;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.StreamRecord;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.lang3.RandomStringUtils;
+
+/**
+ * Stream records and export data files written the way DynamoDB writes them.
+ */
+public final class TestFixtures {
+
+  private TestFixtures() {
+  }
+
+  /**
+   * @param eventName INSERT, MODIFY or REMOVE. Removals carry the item as their old image, other records as their new
+   * image.
+   * @param table The record type of the item, which names its PostgreSQL table.
+   * @param attributes Attributes of the item besides its keys and record type.
+   * @return A stream record of the item with partition key pk and sort key sk.
+   */
+  public static Record streamRecord(String eventName, String table, String pk, String sk, Map<String, AttributeValue> attributes) {
+    var keys = Map.of("pk", new AttributeValue(pk), "sk", new AttributeValue(sk));
+    var image = new HashMap<>(attributes);
+    image.putAll(keys);
+    image.put("recordType", new AttributeValue(table));
+    var streamRecord = new StreamRecord()
+        .withApproximateCreationDateTime(new Date())
+        .withKeys(keys);
+    return new Record()
+        .withEventID(RandomStringUtils.randomAlphanumeric(10))
+        .withEventName(eventName)
+        .withEventVersion("1.1")
+        .withEventSource("aws:dynamodb")
+        .withAwsRegion("us-east-1")
+        .withDynamodb("REMOVE".equals(eventName) ? streamRecord.withOldImage(image) : streamRecord.withNewImage(image));
+  }
+
+  /**
+   * @param table The record type of the items, which names their PostgreSQL table.
+   * @param pk The partition key of the i-th item.
+   * @return A gzipped ION export data file of itemCount items. Their random payloads keep the compressed size close to
+   * the raw size.
+   */
+  public static byte[] gzippedIonExport(String table, int itemCount, IntFunction<String> pk) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    try (var zip = new GZIPOutputStream(bytes)) {
+      for (int i = 0; i < itemCount; i++) {
+        var line = String.format("$ion_1_0 {Item:{pk:\"%s\",sk:\"s\",recordType:\"%s\",payload:\"%s\"}}%n", pk.apply(i), table,
+            RandomStringUtils.randomAlphanumeric(200));
+        zip.write(line.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @param table The record type of the items, which names their PostgreSQL table.
+   * @param pk The partition key of the i-th item.
+   * @return A gzipped DynamoDB JSON export data file of itemCount items, each with a number and a string set besides
+   * its keys.
+   */
+  public static byte[] gzippedDynamoJsonExport(String table, int itemCount, IntFunction<String> pk) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    try (var zip = new GZIPOutputStream(bytes)) {
+      for (int i = 0; i < itemCount; i++) {
+        var line = String.format("{\"Item\":{\"pk\":{\"S\":\"%s\"},\"sk\":{\"S\":\"s\"},\"recordType\":{\"S\":\"%s\"},"
+            + "\"n\":{\"N\":\"%d.5\"},\"tags\":{\"SS\":[\"a\",\"b\"]}}}%n", pk.apply(i), table, i);
+        zip.write(line.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,45 @@
+package com.guidewire.nosql2sql;
+
+import static com.guidewire.nosql2sql.TestFixtures.streamRecord;
+import static org.awaitility.Awaitility.await;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(properties = "mapping.sync.coalesce-window=500ms")
+@ActiveProfiles("test")
+class WhenCoalescingStreamRecords {
+
+  @Autowired
+  private DynamoSyncController dynamoSyncController;
+  @Autowired
+  private JdbcClient jdbcClient;
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Test
+  void onlyTheLatestRecordOfEachItemIsApplied() {
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    dynamoSyncController.acceptData(List.of(
+        streamRecord("INSERT", table, "a", "s", Map.of("version", new AttributeValue("1"))),
+        streamRecord("MODIFY", table, "a", "s", Map.of("version", new AttributeValue("2"))),
+        streamRecord("INSERT", table, "b", "s", Map.of("version", new AttributeValue("1"))),
+        streamRecord("MODIFY", table, "a", "s", Map.of("version", new AttributeValue("3"))),
+        streamRecord("REMOVE", table, "b", "s", Map.of("version", new AttributeValue("1"))),
+        streamRecord("INSERT", table, "c", "s", Map.of("version", new AttributeValue("1")))));
+
+    await().ignoreExceptions().until(() -> jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single() == 2);
+    Assertions.assertEquals("3", jdbcClient.sql("SELECT version FROM " + table + " WHERE pk = 'a'").query(String.class).single());
+    // two modifications replaced the insert of a, and the removal of b cancelled its insert
+    Assertions.assertEquals(4, meterRegistry.counter("nosql2sql.sync.records.coalesced").count());
+  }
+}
@@ -0,0 +1,81 @@
+package com.guidewire.nosql2sql;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.guidewire.nosql2sql.postgres.ColumnDataType;
+import com.guidewire.nosql2sql.postgres.DynamoJsonExportFormatReader;
+import com.guidewire.nosql2sql.postgres.PostgresManager.ApplyType;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class WhenDecodingDynamoJsonExports {
+
+  private final DynamoJsonExportFormatReader exportFormatReader = new DynamoJsonExportFormatReader(new ObjectMapper());
+
+  @Test
+  void typeDescriptorsDecodeToColumnValues() throws IOException {
+    var item = "{\"Item\":{\"pk\":{\"S\":\"a\"},\"i\":{\"N\":\"1\"},\"d\":{\"N\":\"1.5\"},\"b\":{\"B\":\"aGVsbG8=\"},"
+        + "\"flag\":{\"BOOL\":true},\"none\":{\"NULL\":true},"
+        + "\"m\":{\"M\":{\"x\":{\"N\":\"2.5\"},\"l\":{\"L\":[{\"S\":\"y\"},{\"NULL\":true}]}}},"
+        + "\"l\":{\"L\":[{\"N\":\"1\"},{\"BOOL\":false}]},\"ss\":{\"SS\":[\"x\",\"y\"]},\"ns\":{\"NS\":[\"1\",\"2.5\"]}}}\n";
+    try (var reader = exportFormatReader.open(stream(item))) {
+      var attributes = reader.next();
+      // null attributes are left out, like the null columns of the Ion export
+      Assertions.assertEquals(List.of("pk", "i", "d", "b", "flag", "m", "l", "ss", "ns"), List.copyOf(attributes.keySet()));
+      Assertions.assertEquals(ColumnDataType.STRING, attributes.get("pk").type());
+      Assertions.assertEquals("a", attributes.get("pk").value());
+      Assertions.assertEquals(ColumnDataType.BIGINT, attributes.get("i").type());
+      Assertions.assertEquals(ColumnDataType.NUMBER, attributes.get("d").type());
+      Assertions.assertEquals(new BigDecimal("1.5"), attributes.get("d").value());
+      Assertions.assertEquals(ColumnDataType.BINARY, attributes.get("b").type());
+      Assertions.assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), (byte[]) attributes.get("b").value());
+      Assertions.assertEquals(ColumnDataType.BOOL, attributes.get("flag").type());
+      Assertions.assertEquals(true, attributes.get("flag").value());
+      // nested documents are unwrapped from their type descriptors
+      Assertions.assertEquals(ColumnDataType.JSON, attributes.get("m").type());
+      Assertions.assertEquals("{\"x\":2.5,\"l\":[\"y\",null]}", attributes.get("m").toJson());
+      Assertions.assertFalse(attributes.get("l").isSupported());
+      Assertions.assertEquals("[1,false]", attributes.get("l").toJson());
+      Assertions.assertEquals(ColumnDataType.STRING_SET, attributes.get("ss").type());
+      Assertions.assertEquals(List.of("x", "y"), attributes.get("ss").value());
+      Assertions.assertEquals(ColumnDataType.NUMBER_SET, attributes.get("ns").type());
+      Assertions.assertEquals(List.of(BigDecimal.ONE, new BigDecimal("2.5")), attributes.get("ns").value());
+
+      Assertions.assertNull(reader.next());
+    }
+  }
+
+  @Test
+  void incrementalChangeRecordsDecodeToUpsertsAndDeletes() throws IOException {
+    var changes = "{\"Metadata\":{\"WriteTimestampMicros\":{\"N\":\"1\"}},\"Keys\":{\"pk\":{\"S\":\"a\"},\"sk\":{\"S\":\"s\"}},"
+        + "\"NewImage\":{\"pk\":{\"S\":\"a\"},\"sk\":{\"S\":\"s\"},\"recordType\":{\"S\":\"t\"},\"n\":{\"N\":\"1\"}},"
+        + "\"OldImage\":{\"pk\":{\"S\":\"a\"},\"sk\":{\"S\":\"s\"},\"recordType\":{\"S\":\"t\"},\"n\":{\"N\":\"0\"}}}\n"
+        + "{\"Metadata\":{\"WriteTimestampMicros\":{\"N\":\"2\"}},\"Keys\":{\"pk\":{\"S\":\"b\"},\"sk\":{\"S\":\"s\"}},"
+        + "\"OldImage\":{\"pk\":{\"S\":\"b\"},\"sk\":{\"S\":\"s\"},\"recordType\":{\"S\":\"t\"}}}\n"
+        + "{\"Metadata\":{\"WriteTimestampMicros\":{\"N\":\"3\"}},\"Keys\":{\"pk\":{\"S\":\"c\"},\"sk\":{\"S\":\"s\"}}}\n";
+    try (var reader = exportFormatReader.openChanges(stream(changes))) {
+      var updated = reader.next();
+      Assertions.assertEquals(ApplyType.UPDATE, updated.applyType());
+      Assertions.assertEquals("1", updated.item().get("n").toJson());
+
+      var removed = reader.next();
+      Assertions.assertEquals(ApplyType.DELETE, removed.applyType());
+      Assertions.assertEquals("t", removed.item().get("recordType").value());
+
+      // exports without old images only carry the keys of removed items
+      var removedWithoutImage = reader.next();
+      Assertions.assertEquals(ApplyType.DELETE, removedWithoutImage.applyType());
+      Assertions.assertEquals(List.of("pk", "sk"), List.copyOf(removedWithoutImage.item().keySet()));
+
+      Assertions.assertNull(reader.next());
+    }
+  }
+
+  private static ByteArrayInputStream stream(String lines) {
+    return new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8));
+  }
+}
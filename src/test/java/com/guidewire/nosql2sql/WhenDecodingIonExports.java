@@ -0,0 +1,98 @@
+package com.guidewire.nosql2sql;
+
+import com.amazon.ion.system.IonSystemBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.guidewire.nosql2sql.postgres.ColumnDataType;
+import com.guidewire.nosql2sql.postgres.IonDecoder;
+import com.guidewire.nosql2sql.postgres.IonItemDecoder;
+import com.guidewire.nosql2sql.postgres.ItemAttribute;
+import com.guidewire.nosql2sql.postgres.PostgresManager.ApplyType;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class WhenDecodingIonExports {
+
+  private static final Path EXPORT = Path.of("src/test/resources/data/s3/output.ion.gz");
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void directDecoderMatchesJsonTextDecoder() throws IOException {
+    var export = Files.readAllBytes(EXPORT);
+    var direct = decode(export, IonDecoder.DIRECT);
+    var jsonText = decode(export, IonDecoder.JSON_TEXT);
+
+    Assertions.assertFalse(direct.isEmpty());
+    Assertions.assertEquals(jsonText.size(), direct.size());
+    for (int i = 0; i < direct.size(); i++) {
+      Assertions.assertEquals(jsonText.get(i).keySet(), direct.get(i).keySet());
+      for (var attribute : direct.get(i).entrySet()) {
+        var expected = jsonText.get(i).get(attribute.getKey());
+        Assertions.assertEquals(expected.type(), attribute.getValue().type(), attribute.getKey());
+        Assertions.assertEquals(expected.toJson(), attribute.getValue().toJson(), attribute.getKey());
+      }
+    }
+  }
+
+  @Test
+  void incrementalChangeRecordsDecodeToUpsertsAndDeletes() throws IOException {
+    var changes = "{Metadata:{WriteTimestampMicros:1},Keys:{pk:\"a\",sk:\"s\"},"
+        + "NewImage:{pk:\"a\",sk:\"s\",recordType:\"t\",n:1},OldImage:{pk:\"a\",sk:\"s\",recordType:\"t\",n:0}}\n"
+        + "{Metadata:{WriteTimestampMicros:2},Keys:{pk:\"b\",sk:\"s\"},OldImage:{pk:\"b\",sk:\"s\",recordType:\"t\"}}\n";
+    for (var ionDecoder : IonDecoder.values()) {
+      var decoder = new IonItemDecoder(ionDecoder, objectMapper);
+      try (var reader = IonSystemBuilder.standard().getReaderBuilder().build(changes)) {
+        reader.next();
+        var updated = decoder.readChange(reader);
+        Assertions.assertEquals(ApplyType.UPDATE, updated.applyType(), ionDecoder.name());
+        Assertions.assertEquals("1", updated.item().get("n").toJson(), ionDecoder.name());
+
+        reader.next();
+        var removed = decoder.readChange(reader);
+        Assertions.assertEquals(ApplyType.DELETE, removed.applyType(), ionDecoder.name());
+        Assertions.assertEquals("t", removed.item().get("recordType").value(), ionDecoder.name());
+      }
+    }
+  }
+
+  @Test
+  void numbersBinariesAndSetsDecodeToTheNarrowestType() throws IOException {
+    var item = "{Item:{pk:\"a\",i:1,whole:2.,d:1.5,big:123456789012345678901234567890,f:1.5e0,b:{{aGVsbG8=}},"
+        + "ss:$dynamodb_SS::[\"x\",\"y\"],ns:$dynamodb_NS::[1,2.5]}}";
+    var decoder = new IonItemDecoder(IonDecoder.DIRECT, objectMapper);
+    try (var reader = IonSystemBuilder.standard().getReaderBuilder().build(item)) {
+      reader.next();
+      var attributes = decoder.readItem(reader);
+      Assertions.assertEquals(ColumnDataType.BIGINT, attributes.get("i").type());
+      Assertions.assertEquals(ColumnDataType.BIGINT, attributes.get("whole").type());
+      Assertions.assertEquals(ColumnDataType.NUMBER, attributes.get("d").type());
+      Assertions.assertEquals(ColumnDataType.NUMBER, attributes.get("big").type());
+      Assertions.assertEquals(ColumnDataType.DOUBLE, attributes.get("f").type());
+      Assertions.assertEquals(ColumnDataType.BINARY, attributes.get("b").type());
+      Assertions.assertEquals(ColumnDataType.STRING_SET, attributes.get("ss").type());
+      Assertions.assertEquals(ColumnDataType.NUMBER_SET, attributes.get("ns").type());
+      // set elements are kept as decimals, so they bind exactly to numeric arrays
+      Assertions.assertEquals(List.of(BigDecimal.ONE, new BigDecimal("2.5")), attributes.get("ns").value());
+    }
+  }
+
+  private List<Map<String, ItemAttribute>> decode(byte[] export, IonDecoder ionDecoder) throws IOException {
+    var decoder = new IonItemDecoder(ionDecoder, objectMapper);
+    var items = new ArrayList<Map<String, ItemAttribute>>();
+    try (var reader = IonSystemBuilder.standard().getReaderBuilder().build(new GZIPInputStream(new ByteArrayInputStream(export)))) {
+      while (reader.next() != null) {
+        items.add(decoder.readItem(reader));
+      }
+    }
+    return items;
+  }
+}
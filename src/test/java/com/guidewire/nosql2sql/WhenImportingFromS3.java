@@ -0,0 +1,248 @@
+package com.guidewire.nosql2sql;
+
+import com.guidewire.nosql2sql.dynamo.ExportImporter;
+import com.guidewire.nosql2sql.dynamo.ImportOptions;
+import com.guidewire.nosql2sql.dynamo.ImportProgress;
+import com.guidewire.nosql2sql.postgres.ExportDataFile;
+import com.guidewire.nosql2sql.postgres.ImportCheckpoints;
+import com.guidewire.nosql2sql.postgres.ImportCheckpoints.Checkpoint;
+import com.guidewire.nosql2sql.postgres.LoadMode;
+import com.guidewire.nosql2sql.postgres.MappingConfiguration;
+import com.guidewire.nosql2sql.postgres.PostgresManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.FileSystemUtils;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.dynamodb.model.ExportFormat;
+import software.amazon.awssdk.services.s3.S3Client;
+
+@Slf4j
+@SpringBootTest(properties = {
+    "mapping.s3.read-buffer-size=1KB",
+    "mapping.s3.ranged-download-threshold=64KB",
+    "mapping.s3.range-size=16KB",
+    "mapping.dynamodb.dynamo-table-name=streamed_export"
+})
+@ActiveProfiles("test")
+class WhenImportingFromS3 {
+
+  private static final int ITEM_COUNT = 5000;
+
+  @Autowired
+  private ExportImporter exportImporter;
+  @Autowired
+  private PostgresManager postgresManager;
+  @Autowired
+  private S3Client s3Client;
+  @Autowired
+  private JdbcClient jdbcClient;
+  @Autowired
+  private MappingConfiguration mappingConfiguration;
+  @Autowired
+  private ImportCheckpoints importCheckpoints;
+
+  @Test
+  void onlyDataFilesListedInTheLatestManifestAreImported() throws IOException {
+    var bucketName = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    s3Client.createBucket(b -> b.bucket(bucketName));
+
+    // an older export under the same prefix must not be picked up
+    s3Client.putObject(b -> b.bucket(bucketName).key("streamed_export/AWSDynamoDB/00000000000000-older/data/part.ion.gz"),
+        RequestBody.fromBytes(TestFixtures.gzippedIonExport(table, 10, i -> "old:" + i)));
+
+    var exportDirectory = "streamed_export/AWSDynamoDB/01234567890123-manifest";
+    var dataFileKey = exportDirectory + "/data/part.ion.gz";
+    s3Client.putObject(b -> b.bucket(bucketName).key(dataFileKey),
+        RequestBody.fromBytes(TestFixtures.gzippedIonExport(table, ITEM_COUNT, i -> "p:" + i)));
+    s3Client.putObject(b -> b.bucket(bucketName).key(exportDirectory + "/manifest-files.json"),
+        RequestBody.fromString("{\"itemCount\":" + ITEM_COUNT + ",\"dataFileS3Key\":\"" + dataFileKey + "\"}\n"));
+    s3Client.putObject(b -> b.bucket(bucketName).key(exportDirectory + "/manifest-summary.json"),
+        RequestBody.fromString("{\"outputFormat\":\"ION\",\"itemCount\":" + ITEM_COUNT + ",\"manifestFilesS3Key\":\"" + exportDirectory + "/manifest-files.json\"}"));
+
+    var dataFiles = postgresManager.listExportDataFiles(bucketName);
+    Assertions.assertEquals(1, dataFiles.size());
+    Assertions.assertEquals(ITEM_COUNT, dataFiles.get(0).itemCount());
+
+    exportImporter.importExport(bucketName, ImportOptions.builder()
+        .loadMode(LoadMode.BATCH)
+        .workers(1)
+        .inferSchema(false)
+        .build());
+
+    Assertions.assertEquals(ITEM_COUNT, jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single());
+
+    postgresManager.dropTable(table);
+  }
+
+  @Test
+  void dynamoJsonExportIsReadInTheFormatOfItsManifest() throws IOException {
+    var bucketName = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    s3Client.createBucket(b -> b.bucket(bucketName));
+
+    var exportDirectory = "streamed_export/AWSDynamoDB/01234567890123-json";
+    var dataFileKey = exportDirectory + "/data/part.json.gz";
+    s3Client.putObject(b -> b.bucket(bucketName).key(dataFileKey),
+        RequestBody.fromBytes(TestFixtures.gzippedDynamoJsonExport(table, 100, i -> "p:" + i)));
+    s3Client.putObject(b -> b.bucket(bucketName).key(exportDirectory + "/manifest-files.json"),
+        RequestBody.fromString("{\"itemCount\":100,\"dataFileS3Key\":\"" + dataFileKey + "\"}\n"));
+    s3Client.putObject(b -> b.bucket(bucketName).key(exportDirectory + "/manifest-summary.json"),
+        RequestBody.fromString("{\"outputFormat\":\"DYNAMODB_JSON\",\"itemCount\":100,\"manifestFilesS3Key\":\"" + exportDirectory + "/manifest-files.json\"}"));
+
+    var dataFiles = postgresManager.listExportDataFiles(bucketName);
+    Assertions.assertEquals(List.of(new ExportDataFile(dataFileKey, ExportFormat.DYNAMODB_JSON, 100)), dataFiles);
+
+    exportImporter.importExport(bucketName, ImportOptions.builder()
+        .loadMode(LoadMode.BATCH)
+        .workers(1)
+        .inferSchema(true)
+        .build());
+
+    Assertions.assertEquals(100, jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single());
+    Assertions.assertEquals("99.5", jdbcClient.sql("SELECT n::text FROM " + table + " WHERE pk = 'p:99'").query(String.class).single());
+    Assertions.assertEquals("{a,b}", jdbcClient.sql("SELECT tags::text FROM " + table + " WHERE pk = 'p:99'").query(String.class).single());
+
+    postgresManager.dropTable(table);
+  }
+
+  @Test
+  void largeDataFilesAreDownloadedInRanges() throws IOException {
+    var bucketName = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    s3Client.createBucket(b -> b.bucket(bucketName));
+    var export = TestFixtures.gzippedIonExport(table, 1000, i -> "p:" + i);
+    var rangeSize = mappingConfiguration.getS3().getRangeSize().toBytes();
+    Assertions.assertTrue(export.length > rangeSize * 4, "export should span several ranges");
+    // not a multiple of the range size, so the last range is a partial one
+    Assertions.assertNotEquals(0, export.length % rangeSize);
+    var key = "streamed_export/AWSDynamoDB/01234567890123-ranged/data/part.ion.gz";
+    s3Client.putObject(b -> b.bucket(bucketName).key(key), RequestBody.fromBytes(export));
+
+    var target = Files.createTempFile("ranged-", ".gz");
+    try {
+      var bytesRead = new AtomicLong();
+      postgresManager.downloadExportDataFile(bucketName, new ExportDataFile(key, ExportFormat.ION), target, bytesRead::addAndGet);
+
+      Assertions.assertEquals(export.length, bytesRead.get());
+      Assertions.assertArrayEquals(export, Files.readAllBytes(target));
+    } finally {
+      Files.deleteIfExists(target);
+    }
+  }
+
+  @Test
+  void exportCopiedToALocalDirectoryIsImported() throws IOException {
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var directory = Files.createTempDirectory("exports-");
+    var dataFile = directory.resolve("streamed_export/AWSDynamoDB/01234567890123-local/data/part.ion.gz");
+    Files.createDirectories(dataFile.getParent());
+    Files.write(dataFile, TestFixtures.gzippedIonExport(table, ITEM_COUNT, i -> "p:" + i));
+
+    exportImporter.importExport(directory.toUri().toString(), ImportOptions.builder()
+        .loadMode(LoadMode.BATCH)
+        .workers(1)
+        .inferSchema(false)
+        .build());
+
+    Assertions.assertEquals(ITEM_COUNT, jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single());
+
+    postgresManager.dropTable(table);
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+  @Test
+  void resumedImportSkipsCompletedFilesAndContinuesPartialFiles() throws IOException {
+    var bucketName = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    s3Client.createBucket(b -> b.bucket(bucketName));
+    var dataDirectory = "streamed_export/AWSDynamoDB/01234567890123-resumed/data/";
+    s3Client.putObject(b -> b.bucket(bucketName).key(dataDirectory + "completed.ion.gz"),
+        RequestBody.fromBytes(TestFixtures.gzippedIonExport(table, 100, i -> "completed:" + i)));
+    s3Client.putObject(b -> b.bucket(bucketName).key(dataDirectory + "partial.ion.gz"),
+        RequestBody.fromBytes(TestFixtures.gzippedIonExport(table, 100, i -> "partial:" + i)));
+
+    // rows committed before the interruption are not in the table, so they show up only if they are imported again
+    importCheckpoints.createTable();
+    importCheckpoints.clear(dataDirectory);
+    for (var dataFile : postgresManager.listExportDataFiles(bucketName)) {
+      var completed = dataFile.key().endsWith("completed.ion.gz");
+      importCheckpoints.record(dataFile.key(), completed ? 100 : 40, completed);
+    }
+
+    exportImporter.importExport(bucketName, ImportOptions.builder()
+        .loadMode(LoadMode.BATCH)
+        .workers(2)
+        .inferSchema(false)
+        .staged(false)
+        .resume(true)
+        .build());
+
+    Assertions.assertEquals(List.of("partial"), jdbcClient.sql("SELECT DISTINCT split_part(pk, ':', 1) FROM " + table)
+        .query(String.class).list());
+    Assertions.assertEquals(60, jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single());
+    Assertions.assertEquals(40, jdbcClient.sql("SELECT min(split_part(pk, ':', 2)::int) FROM " + table).query(Integer.class).single());
+    var checkpoints = importCheckpoints.load(dataDirectory);
+    Assertions.assertEquals(2, checkpoints.size());
+    Assertions.assertTrue(checkpoints.values().stream().allMatch(Checkpoint::completed));
+
+    postgresManager.dropTable(table);
+  }
+
+  @Test
+  void importStartedFromTheBeginningKeepsTheCheckpointsOfOtherExports() throws IOException {
+    var bucketName = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    s3Client.createBucket(b -> b.bucket(bucketName));
+    s3Client.putObject(b -> b.bucket(bucketName).key("streamed_export/AWSDynamoDB/01234567890123-restarted/data/part.ion.gz"),
+        RequestBody.fromBytes(TestFixtures.gzippedIonExport(table, 10, i -> "p:" + i)));
+    var interrupted = "other_export/AWSDynamoDB/01234567890123-interrupted/data/";
+    importCheckpoints.createTable();
+    importCheckpoints.record(interrupted + "part.ion.gz", 40, false);
+
+    exportImporter.importExport(bucketName, ImportOptions.builder()
+        .loadMode(LoadMode.BATCH)
+        .workers(1)
+        .inferSchema(false)
+        .staged(false)
+        .resume(false)
+        .build());
+
+    Assertions.assertEquals(40, importCheckpoints.load(interrupted).get(interrupted + "part.ion.gz").itemsCommitted());
+
+    importCheckpoints.clear(interrupted);
+    postgresManager.dropTable(table);
+  }
+
+  @Test
+  void cancelledImportStopsWithoutWritingRows() throws IOException {
+    var bucketName = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    s3Client.createBucket(b -> b.bucket(bucketName));
+    s3Client.putObject(b -> b.bucket(bucketName).key("streamed_export/AWSDynamoDB/01234567890123-cancelled/data/part.ion.gz"),
+        RequestBody.fromBytes(TestFixtures.gzippedIonExport(table, 10, i -> "p:" + i)));
+
+    var progress = new ImportProgress();
+    progress.cancel();
+    Assertions.assertThrows(RuntimeException.class, () -> exportImporter.importExport(bucketName, ImportOptions.builder()
+        .loadMode(LoadMode.BATCH)
+        .workers(1)
+        .inferSchema(false)
+        .build(), progress));
+
+    Assertions.assertEquals(0, progress.getImportedItems());
+    Assertions.assertEquals(0, progress.getCompletedFiles());
+    Assertions.assertEquals(0, jdbcClient.sql("SELECT count(*) FROM information_schema.tables WHERE table_name = ?")
+        .param(table).query(Long.class).single());
+  }
+}
@@ -0,0 +1,83 @@
+package com.guidewire.nosql2sql;
+
+import com.guidewire.nosql2sql.dynamo.ExportImporter;
+import com.guidewire.nosql2sql.dynamo.ImportOptions;
+import com.guidewire.nosql2sql.postgres.LoadMode;
+import com.guidewire.nosql2sql.postgres.PostgresManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.FileSystemUtils;
+
+@SpringBootTest(properties = {
+    "mapping.postgresql.partitions=4",
+    "mapping.dynamodb.dynamo-table-name=partitioned_export"
+})
+@ActiveProfiles("test")
+class WhenPartitioningTables {
+
+  private static final int ITEM_COUNT = 2000;
+  private static final int PARTITIONS = 4;
+
+  @Autowired
+  private ExportImporter exportImporter;
+  @Autowired
+  private PostgresManager postgresManager;
+  @Autowired
+  private JdbcClient jdbcClient;
+
+  @Test
+  void rowsAreCopiedIntoEveryPartition() throws IOException {
+    var table = importExport(false);
+
+    // a row copied into the wrong partition fails the partition constraint, so the import routed every row correctly
+    Assertions.assertEquals(ITEM_COUNT, jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single());
+    assertEveryPartitionHasRows(table);
+
+    postgresManager.dropTable(table);
+  }
+
+  @Test
+  void stagedImportPublishesThePartitionsWithTheLiveTable() throws IOException {
+    var table = importExport(true);
+
+    Assertions.assertEquals(ITEM_COUNT, jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single());
+    assertEveryPartitionHasRows(table);
+    Assertions.assertEquals(0, jdbcClient.sql("SELECT count(*) FROM pg_class WHERE relname LIKE ? AND relpersistence = 'u'")
+        .param(table + "%").query(Long.class).single());
+
+    postgresManager.dropTable(table);
+  }
+
+  private String importExport(boolean staged) throws IOException {
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var directory = Files.createTempDirectory("exports-");
+    var dataFile = directory.resolve("partitioned_export/AWSDynamoDB/01234567890123-partitioned/data/part.ion.gz");
+    Files.createDirectories(dataFile.getParent());
+    // keys of varying length exercise every tail length of the partition hash
+    Files.write(dataFile, TestFixtures.gzippedIonExport(table, ITEM_COUNT, i -> "p".repeat(i % 13) + i));
+
+    exportImporter.importExport(directory.toUri().toString(), ImportOptions.builder()
+        .loadMode(LoadMode.COPY_BINARY)
+        .workers(2)
+        .inferSchema(false)
+        .staged(staged)
+        .build());
+
+    FileSystemUtils.deleteRecursively(directory);
+    return table;
+  }
+
+  private void assertEveryPartitionHasRows(String table) {
+    for (var remainder = 0; remainder < PARTITIONS; remainder++) {
+      var partition = table + "$p" + remainder;
+      Assertions.assertTrue(jdbcClient.sql("SELECT count(*) FROM " + partition).query(Long.class).single() > 0, partition);
+    }
+  }
+}
@@ -4,16 +4,15 @@ import static org.awaitility.Awaitility.await;
 
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.Record;
-import com.amazonaws.services.dynamodbv2.model.StreamRecord;
 import com.guidewire.nosql2sql.postgres.PostgresManager;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.IntStream;
 import lombok.extern.slf4j.Slf4j;
 import net.bytebuddy.utility.RandomString;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -56,6 +55,37 @@ class WhenQueueIsActive {
     });
   }
 
+  @Test
+  void modifyIsAppliedAsASingleUpsertOnThePrimaryKey() {
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var pk = RandomStringUtils.randomAlphabetic(10);
+    var sk = RandomStringUtils.randomAlphabetic(10);
+    postgresManager.applyAwsRecord(generateRecord("INSERT", pk, sk, table, "first"));
+    Assertions.assertEquals(List.of("pk", "sk"), jdbcClient.sql("SELECT a.attname FROM pg_index i"
+            + " JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey)"
+            + " WHERE i.indrelid = to_regclass(?) AND i.indisprimary ORDER BY a.attnum")
+        .param(table).query(String.class).list());
+
+    // records every statement run against the table from here on
+    var statements = "statements_" + table;
+    jdbcClient.sql("CREATE TABLE " + statements + " (operation varchar)").update();
+    jdbcClient.sql("CREATE FUNCTION " + statements + "() RETURNS trigger LANGUAGE plpgsql AS $$"
+        + " BEGIN INSERT INTO " + statements + " VALUES (TG_OP); RETURN NULL; END $$").update();
+    jdbcClient.sql("CREATE TRIGGER " + statements + " AFTER INSERT OR UPDATE OR DELETE ON " + table
+        + " FOR EACH STATEMENT EXECUTE FUNCTION " + statements + "()").update();
+
+    postgresManager.applyAwsRecord(generateRecord("MODIFY", pk, sk, table, "second"));
+
+    // INSERT ... ON CONFLICT DO UPDATE fires the statement triggers of both INSERT and UPDATE, a delete and insert would not
+    Assertions.assertEquals(List.of("INSERT", "UPDATE"), jdbcClient.sql("SELECT operation FROM " + statements + " ORDER BY operation")
+        .query(String.class).list());
+    Assertions.assertEquals(List.of("second"), jdbcClient.sql("SELECT key FROM " + table).query(String.class).list());
+
+    postgresManager.dropTable(table);
+    jdbcClient.sql("DROP FUNCTION " + statements + "() CASCADE").update();
+    jdbcClient.sql("DROP TABLE " + statements).update();
+  }
+
   private List<Record> getRandomRecords(int n) {
     List<Record> records = new ArrayList<>();
     IntStream.range(0, n).forEach(i -> {
@@ -65,38 +95,14 @@ class WhenQueueIsActive {
       var sk = "test-helios-settingDef-sk-" + RandomString.make(9);
       var eventName = "INSERT";
 
-      records.add(generateRecord(table, key, pk, sk, eventName));
+      records.add(generateRecord(eventName, pk, sk, table, key));
     });
 
     return records;
   }
 
-  private Record generateRecord(String eventName, String pk, String sk, String table, String key) {
-    return new Record()
-        .withEventID(RandomString.make(10))
-        .withEventName(eventName)
-        .withEventVersion("1.1")
-        .withEventSource("aws:dynamodb")
-        .withAwsRegion("us-east-1")
-        .withDynamodb(
-            new StreamRecord()
-                .withApproximateCreationDateTime(new Date())
-                .withKeys(
-                    Map.of(
-                        "pk", new AttributeValue(pk),
-                        "sk", new AttributeValue(sk)
-                    )
-                )
-                .withNewImage(
-                    Map.of(
-                        "pk", new AttributeValue(pk),
-                        "sk", new AttributeValue(sk),
-                        "version", new AttributeValue().withN("1"),
-                        "recordType", new AttributeValue(table),
-                        "key", new AttributeValue(key)
-                    )
-                )
-        );
+  private static Record generateRecord(String eventName, String pk, String sk, String table, String key) {
+    return TestFixtures.streamRecord(eventName, table, pk, sk,
+        Map.of("version", new AttributeValue().withN("1"), "key", new AttributeValue(key)));
   }
-
 }
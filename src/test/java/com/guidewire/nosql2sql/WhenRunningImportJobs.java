@@ -0,0 +1,142 @@
+package com.guidewire.nosql2sql;
+
+import static com.guidewire.nosql2sql.TestFixtures.streamRecord;
+import static org.awaitility.Awaitility.await;
+
+import com.guidewire.nosql2sql.dynamo.ImportJob.State;
+import com.guidewire.nosql2sql.dynamo.ImportJob.Status;
+import com.guidewire.nosql2sql.postgres.ImportCheckpoints;
+import com.guidewire.nosql2sql.postgres.LoadMode;
+import com.guidewire.nosql2sql.postgres.PostgresManager;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+@SpringBootTest(properties = "mapping.dynamodb.dynamo-table-name=job_export")
+@ActiveProfiles("test")
+class WhenRunningImportJobs {
+
+  private static final int ITEM_COUNT = 100;
+
+  private static Path exports;
+
+  @Autowired
+  private DynamoSyncController dynamoSyncController;
+  @Autowired
+  private PostgresManager postgresManager;
+  @Autowired
+  private ImportCheckpoints importCheckpoints;
+  @Autowired
+  private JdbcClient jdbcClient;
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @DynamicPropertySource
+  static void exportLocation(DynamicPropertyRegistry registry) throws IOException {
+    exports = Files.createTempDirectory("exports-");
+    registry.add("mapping.importer.export-location", () -> exports.toUri().toString());
+  }
+
+  @Test
+  void importIsStartedAndReportedUnderItsLocation() throws IOException {
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var exportDirectory = writeExport(table);
+
+    var started = startImport();
+    Assertions.assertEquals(HttpStatus.ACCEPTED, started.getStatusCode());
+    var id = ((Status) started.getBody()).id();
+    Assertions.assertEquals(URI.create("/api/import/" + id), started.getHeaders().getLocation());
+
+    var status = awaitFinished(id);
+    Assertions.assertEquals(State.SUCCEEDED, status.state());
+    Assertions.assertEquals(1, status.files());
+    Assertions.assertEquals(1, status.completedFiles());
+    Assertions.assertEquals(ITEM_COUNT, status.importedItems());
+    Assertions.assertTrue(status.bytesRead() > 0);
+    Assertions.assertEquals(ITEM_COUNT, jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single());
+
+    // a finished import can no longer be cancelled
+    Assertions.assertEquals(HttpStatus.CONFLICT, dynamoSyncController.cancelImport(id).getStatusCode());
+    Assertions.assertEquals(HttpStatus.NOT_FOUND, dynamoSyncController.importStatus("unknown").getStatusCode());
+    Assertions.assertEquals(HttpStatus.NOT_FOUND, dynamoSyncController.cancelImport("unknown").getStatusCode());
+
+    importCheckpoints.clear(exportDirectory);
+    postgresManager.dropTable(table);
+  }
+
+  @Test
+  void runningImportKeepsOtherImportsAndRefreshesOfTheTableOutUntilCancelled() throws IOException {
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var exportDirectory = writeExport(table);
+    postgresManager.applyAwsRecord(streamRecord("INSERT", table, "created", "s", Map.of()));
+
+    var id = transactionTemplate.execute(transaction -> {
+      // the import waits for this lock before it writes its first item, so it keeps running while it is checked
+      jdbcClient.sql("LOCK TABLE " + table + " IN ACCESS EXCLUSIVE MODE").update();
+
+      var started = startImport();
+      Assertions.assertEquals(HttpStatus.ACCEPTED, started.getStatusCode());
+      var running = ((Status) started.getBody()).id();
+      Assertions.assertEquals(State.RUNNING, status(running).state());
+
+      var concurrent = startImport();
+      Assertions.assertEquals(HttpStatus.CONFLICT, concurrent.getStatusCode());
+      Assertions.assertTrue(((String) concurrent.getBody()).contains(running));
+      Assertions.assertEquals(HttpStatus.CONFLICT, dynamoSyncController.refreshTable(null, null).getStatusCode());
+
+      Assertions.assertEquals(HttpStatus.ACCEPTED, dynamoSyncController.cancelImport(running).getStatusCode());
+      return running;
+    });
+
+    var status = awaitFinished(id);
+    Assertions.assertEquals(State.CANCELLED, status.state());
+    Assertions.assertTrue(status.importedItems() < ITEM_COUNT);
+    // the table is free again once the import has stopped, and the cancelled import can be resumed
+    var resumed = dynamoSyncController.importTable(LoadMode.BATCH, 1, false, false, true);
+    Assertions.assertEquals(HttpStatus.ACCEPTED, resumed.getStatusCode());
+    Assertions.assertEquals(State.SUCCEEDED, awaitFinished(((Status) resumed.getBody()).id()).state());
+    Assertions.assertEquals(ITEM_COUNT + 1, jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single());
+
+    importCheckpoints.clear(exportDirectory);
+    postgresManager.dropTable(table);
+  }
+
+  private String writeExport(String table) throws IOException {
+    var exportDirectory = "job_export/AWSDynamoDB/" + RandomStringUtils.randomNumeric(14) + "-" + table + "/";
+    FileSystemUtils.deleteRecursively(exports.resolve("job_export"));
+    var dataFile = exports.resolve(exportDirectory + "data/part.ion.gz");
+    Files.createDirectories(dataFile.getParent());
+    Files.write(dataFile, TestFixtures.gzippedIonExport(table, ITEM_COUNT, i -> "p:" + i));
+    return exportDirectory;
+  }
+
+  private ResponseEntity<?> startImport() {
+    return dynamoSyncController.importTable(LoadMode.BATCH, 1, false, false, false);
+  }
+
+  private Status status(String id) {
+    var response = dynamoSyncController.importStatus(id);
+    Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+    return (Status) response.getBody();
+  }
+
+  private Status awaitFinished(String id) {
+    await().until(() -> status(id).state() != State.RUNNING);
+    return status(id);
+  }
+}
@@ -0,0 +1,159 @@
+package com.guidewire.nosql2sql;
+
+import static org.mockito.Mockito.doReturn;
+
+import com.guidewire.nosql2sql.dynamo.ExportImporter;
+import com.guidewire.nosql2sql.dynamo.ImportOptions;
+import com.guidewire.nosql2sql.postgres.ExportObject;
+import com.guidewire.nosql2sql.postgres.ExportSource;
+import com.guidewire.nosql2sql.postgres.ExportSources;
+import com.guidewire.nosql2sql.postgres.LoadMode;
+import com.guidewire.nosql2sql.postgres.MappingConfiguration;
+import com.guidewire.nosql2sql.postgres.PostgresManager;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+
+// without prefetching, every data file is streamed straight from S3
+@SpringBootTest(properties = {
+    "mapping.s3.read-buffer-size=1KB",
+    "mapping.importer.prefetch=0",
+    "mapping.dynamodb.dynamo-table-name=streamed_export"
+})
+@ActiveProfiles("test")
+class WhenStreamingExportsFromS3 {
+
+  private static final int ITEM_COUNT = 5000;
+
+  @Autowired
+  private ExportImporter exportImporter;
+  @Autowired
+  private PostgresManager postgresManager;
+  @Autowired
+  private S3Client s3Client;
+  @Autowired
+  private JdbcClient jdbcClient;
+  @Autowired
+  private MappingConfiguration mappingConfiguration;
+  @SpyBean
+  private ExportSources exportSources;
+
+  @Test
+  void exportLargerThanReadBufferIsFullyImported() throws IOException {
+    var bucketName = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    s3Client.createBucket(b -> b.bucket(bucketName));
+
+    var export = TestFixtures.gzippedIonExport(table, ITEM_COUNT, i -> "p:" + i);
+    var readBufferSize = mappingConfiguration.getS3().getReadBufferSize().toBytes();
+    Assertions.assertTrue(export.length > readBufferSize * 100, "export should be much larger than the read buffer");
+    s3Client.putObject(b -> b.bucket(bucketName).key("streamed_export/AWSDynamoDB/01234567890123-abcdefgh/data/part.ion.gz"), RequestBody.fromBytes(export));
+    var source = new BoundedReadExportSource(exportSources.resolve(bucketName));
+    doReturn(source).when(exportSources).resolve(bucketName);
+
+    exportImporter.importExport(bucketName, ImportOptions.builder()
+        .loadMode(LoadMode.BATCH)
+        .workers(1)
+        .inferSchema(false)
+        .build());
+
+    Assertions.assertEquals(ITEM_COUNT, jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single());
+    // the object was read in full, but never more than a read buffer at a time
+    Assertions.assertEquals(export.length, source.bytesRead.get());
+    Assertions.assertTrue(source.largestRead.get() <= readBufferSize, "read " + source.largestRead.get() + " bytes at once");
+    Assertions.assertTrue(source.reads.get() >= export.length / readBufferSize, "read in " + source.reads.get() + " reads");
+
+    postgresManager.dropTable(table);
+  }
+
+  /**
+   * Records the reads of the objects it opens, and fails reads that would hold a whole object on the heap.
+   */
+  private static class BoundedReadExportSource implements ExportSource {
+
+    private final ExportSource source;
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicInteger largestRead = new AtomicInteger();
+    private final AtomicInteger reads = new AtomicInteger();
+
+    BoundedReadExportSource(ExportSource source) {
+      this.source = source;
+    }
+
+    @Override
+    public String location() {
+      return source.location();
+    }
+
+    @Override
+    public List<ExportObject> list(String prefix) {
+      return source.list(prefix);
+    }
+
+    @Override
+    public InputStream open(String key, LongConsumer bytesRead) throws IOException {
+      return new FilterInputStream(source.open(key, bytesRead)) {
+        @Override
+        public int read() throws IOException {
+          var read = super.read();
+          if (read >= 0) {
+            BoundedReadExportSource.this.bytesRead.incrementAndGet();
+          }
+          return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+          reads.incrementAndGet();
+          largestRead.accumulateAndGet(length, Math::max);
+          var read = super.read(buffer, offset, length);
+          if (read > 0) {
+            BoundedReadExportSource.this.bytesRead.addAndGet(read);
+          }
+          return read;
+        }
+
+        @Override
+        public byte[] readAllBytes() {
+          throw new AssertionError("Read all of " + key + " at once");
+        }
+
+        @Override
+        public byte[] readNBytes(int length) {
+          throw new AssertionError("Read " + length + " bytes of " + key + " at once");
+        }
+
+        @Override
+        public long transferTo(OutputStream out) {
+          throw new AssertionError("Copied all of " + key + " at once");
+        }
+      };
+    }
+
+    @Override
+    public void download(String key, Path target, LongConsumer bytesRead) {
+      throw new AssertionError("Downloaded " + key + " instead of streaming it");
+    }
+
+    @Override
+    public boolean isLocal() {
+      return source.isLocal();
+    }
+  }
+}
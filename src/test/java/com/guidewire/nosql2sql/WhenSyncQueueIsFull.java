@@ -0,0 +1,60 @@
+package com.guidewire.nosql2sql;
+
+import static com.guidewire.nosql2sql.TestFixtures.streamRecord;
+import static org.awaitility.Awaitility.await;
+
+import com.guidewire.nosql2sql.postgres.PostgresManager;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// lanes write each record directly, so a record keeps its place in the queue until its row is written
+@SpringBootTest(properties = {
+    "mapping.sync.queue-capacity=2",
+    "mapping.sync.retry-after=5s",
+    "mapping.postgresql.batch.sync-enabled=false"
+})
+@ActiveProfiles("test")
+class WhenSyncQueueIsFull {
+
+  @Autowired
+  private DynamoSyncController dynamoSyncController;
+  @Autowired
+  private PostgresManager postgresManager;
+  @Autowired
+  private JdbcClient jdbcClient;
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Test
+  void recordsAreRejectedWithRetryAfter() {
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    postgresManager.applyAwsRecord(streamRecord("INSERT", table, "created", "s", Map.of()));
+
+    transactionTemplate.executeWithoutResult(status -> {
+      // the lanes wait for this lock, so the accepted records cannot drain while the queue is checked
+      jdbcClient.sql("LOCK TABLE " + table + " IN ACCESS EXCLUSIVE MODE").update();
+
+      var accepted = dynamoSyncController.acceptData(List.of(
+          streamRecord("INSERT", table, "a", "s", Map.of()),
+          streamRecord("INSERT", table, "b", "s", Map.of())));
+      Assertions.assertEquals(HttpStatus.ACCEPTED, accepted.getStatusCode());
+
+      var rejected = dynamoSyncController.acceptData(List.of(streamRecord("INSERT", table, "c", "s", Map.of())));
+      Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatusCode());
+      Assertions.assertEquals("5", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    });
+
+    await().until(() -> jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single() == 3);
+    postgresManager.dropTable(table);
+  }
+}
@@ -0,0 +1,55 @@
+package com.guidewire.nosql2sql;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.guidewire.nosql2sql.postgres.PostgresManager;
+import com.guidewire.nosql2sql.postgres.PostgresManager.ApplyType;
+import java.math.BigDecimal;
+import java.util.List;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class WhenWideningNumberColumns {
+
+  @Autowired
+  private PostgresManager postgresManager;
+  @Autowired
+  private JdbcClient jdbcClient;
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Test
+  void bigintColumnIsWidenedToNumericAndKeepsItsRows() throws JsonProcessingException {
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    apply(table, "a", "1");
+    Assertions.assertEquals("bigint", columnType(table));
+
+    // a JSON decimal is exact, so it widens the column to numeric rather than double precision
+    apply(table, "b", "1.5");
+    Assertions.assertEquals("numeric", columnType(table));
+    apply(table, "c", "123456789012345678901234567890");
+
+    Assertions.assertEquals("numeric", columnType(table));
+    Assertions.assertEquals(List.of(new BigDecimal("1"), new BigDecimal("1.5"), new BigDecimal("123456789012345678901234567890")),
+        jdbcClient.sql("SELECT n FROM " + table + " ORDER BY pk").query(BigDecimal.class).list());
+
+    postgresManager.dropTable(table);
+  }
+
+  private void apply(String table, String pk, String number) throws JsonProcessingException {
+    var json = "{\"pk\": \"" + pk + "\", \"sk\": \"s\", \"recordType\": \"" + table + "\", \"n\": " + number + "}";
+    postgresManager.applyToPostgres(objectMapper.readTree(json), ApplyType.INSERT);
+  }
+
+  private String columnType(String table) {
+    return jdbcClient.sql("SELECT data_type FROM information_schema.columns WHERE table_name = ? AND column_name = 'n'")
+        .param(table).query(String.class).single();
+  }
+}
@@ -0,0 +1,71 @@
+package com.guidewire.nosql2sql;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.guidewire.nosql2sql.postgres.PostgresManager;
+import com.guidewire.nosql2sql.postgres.PostgresManager.ApplyType;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(properties = {
+    "mapping.postgresql.child-tables.enabled=true",
+    "mapping.postgresql.child-tables.max-fan-out=3"
+})
+@ActiveProfiles("test")
+class WhenWritingChildTables {
+
+  @Autowired
+  private PostgresManager postgresManager;
+  @Autowired
+  private JdbcClient jdbcClient;
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Test
+  void nestedListsAndMapsAreWrittenToChildTablesAndReplacedOnUpdate() throws JsonProcessingException {
+    var table = RandomStringUtils.randomAlphabetic(10).toLowerCase();
+    apply(table, ApplyType.INSERT, """
+        "addresses": [{"city": "Berlin", "lines": ["a", "b"]}, {"city": "Paris"}],
+        "profile": {"age": 42},
+        "tags": ["1", "2", "3", "4"]""");
+
+    Assertions.assertEquals(2, count(table + "_addresses"));
+    Assertions.assertEquals("Paris", jdbcClient.sql("SELECT city FROM " + table + "_addresses WHERE pk = 'p' AND sk = 's' AND ordinal = 1")
+        .query(String.class).single());
+    Assertions.assertEquals("b", jdbcClient.sql("SELECT value FROM " + table + "_addresses_lines WHERE ordinal_1 = 0 AND ordinal = 1")
+        .query(String.class).single());
+    Assertions.assertEquals(42, jdbcClient.sql("SELECT age FROM " + table + "_profile").query(Integer.class).single());
+    // lists longer than the fan-out limit stay on the item
+    Assertions.assertEquals(4, jdbcClient.sql("SELECT jsonb_array_length(tags) FROM " + table).query(Integer.class).single());
+
+    apply(table, ApplyType.UPDATE, """
+        "addresses": [{"city": "Rome"}]""");
+
+    Assertions.assertEquals(1, count(table + "_addresses"));
+    Assertions.assertEquals(0, count(table + "_addresses_lines"));
+    Assertions.assertEquals(0, count(table + "_profile"));
+
+    apply(table, ApplyType.DELETE, "");
+
+    Assertions.assertEquals(0, count(table));
+    Assertions.assertEquals(0, count(table + "_addresses"));
+
+    for (var child : new String[] {"_addresses_lines", "_addresses", "_profile", ""}) {
+      postgresManager.dropTable(table + child);
+    }
+  }
+
+  private void apply(String table, ApplyType applyType, String attributes) throws JsonProcessingException {
+    var json = "{\"pk\": \"p\", \"sk\": \"s\", \"recordType\": \"" + table + "\"" + (attributes.isEmpty() ? "" : "," + attributes) + "}";
+    postgresManager.applyToPostgres(objectMapper.readTree(json), applyType);
+  }
+
+  private long count(String table) {
+    return jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single();
+  }
+}
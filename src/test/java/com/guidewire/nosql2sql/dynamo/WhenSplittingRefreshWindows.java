@@ -0,0 +1,43 @@
+package com.guidewire.nosql2sql.dynamo;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class WhenSplittingRefreshWindows {
+
+  private static final Instant FROM = Instant.parse("2024-05-01T00:00:00Z");
+
+  @Test
+  void windowShorterThanFifteenMinutesIsLeftToTheNextRefresh() {
+    Assertions.assertNull(IncrementalRefresh.windowEnd(FROM, FROM));
+    Assertions.assertNull(IncrementalRefresh.windowEnd(FROM, FROM.plus(Duration.ofMinutes(15)).minusMillis(1)));
+  }
+
+  @Test
+  void windowOfFifteenMinutesIsExported() {
+    var now = FROM.plus(Duration.ofMinutes(15));
+    Assertions.assertEquals(now, IncrementalRefresh.windowEnd(FROM, now));
+  }
+
+  @Test
+  void windowEndsNowWhenShorterThanADay() {
+    var now = FROM.plus(Duration.ofHours(5));
+    Assertions.assertEquals(now, IncrementalRefresh.windowEnd(FROM, now));
+
+    var day = FROM.plus(Duration.ofHours(24));
+    Assertions.assertEquals(day, IncrementalRefresh.windowEnd(FROM, day));
+  }
+
+  @Test
+  void longerWindowIsSplitIntoDays() {
+    var now = FROM.plus(Duration.ofHours(50));
+    var first = IncrementalRefresh.windowEnd(FROM, now);
+    Assertions.assertEquals(FROM.plus(Duration.ofHours(24)), first);
+    var second = IncrementalRefresh.windowEnd(first, now);
+    Assertions.assertEquals(FROM.plus(Duration.ofHours(48)), second);
+    Assertions.assertEquals(now, IncrementalRefresh.windowEnd(second, now));
+    Assertions.assertNull(IncrementalRefresh.windowEnd(now, now));
+  }
+}